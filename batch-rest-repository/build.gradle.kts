@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "4.1.0"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "zin.rashidi.boot"
@@ -20,6 +21,7 @@ repositories {
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-batch")
     implementation("org.springframework.boot:spring-boot-starter-data-mongodb")
+    implementation("io.micrometer:micrometer-core")
     implementation("tools.jackson.core:jackson-databind")
     runtimeOnly("com.mysql:mysql-connector-j")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -31,6 +33,29 @@ dependencies {
     testImplementation("org.testcontainers:testcontainers-mysql")
 }
 
+jmh {
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+}
+
 tasks.named<Test>("test") {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs userJob end to end against a generated feed of -Pbenchmark.users users."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    systemProperty("benchmark.users", providers.gradleProperty("benchmark.users").getOrElse("100000"))
+    systemProperty("benchmark.partitions", providers.gradleProperty("benchmark.partitions").getOrElse("1"))
+    maxHeapSize = "2g"
+    outputs.upToDateWhen { false }
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.infrastructure.item.json.JacksonJsonObjectReader;
+import org.springframework.core.io.ByteArrayResource;
+
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Measures both read paths of {@link UserJobConfiguration} with the same {@link JsonMapper} settings:
+ * {@link JacksonJsonObjectReader}, used for local resources, and the token by token binding of {@link UserHttpItemReader}.
+ * Run with {@code ./gradlew jmh}, the {@code gc} profiler reports the allocation rate next to the throughput.
+ *
+ * @author Rashidi Zin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+public class UserReadBenchmark {
+
+    private static final JsonMapper OBJECT_MAPPER = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    @Param({ "1000", "100000" })
+    private int users;
+
+    private byte[] feed;
+
+    @Setup
+    public void generate() {
+        feed = IntStream.rangeClosed(1, users)
+                .mapToObj("{\"id\":%1$d,\"username\":\"user.%1$d\",\"email\":\"user.%1$d@example.com\"}"::formatted)
+                .collect(Collectors.joining(",", "[", "]"))
+                .getBytes(UTF_8);
+    }
+
+    /**
+     * Throughput is per feed, so divide by {@code users} for users per second.
+     */
+    @Benchmark
+    public void jacksonJsonObjectReader(Blackhole blackhole) throws Exception {
+        var reader = new JacksonJsonObjectReader<>(User.class);
+
+        reader.setMapper(OBJECT_MAPPER);
+        reader.open(new ByteArrayResource(feed));
+
+        for (var user = reader.read(); user != null; user = reader.read()) {
+            blackhole.consume(user);
+        }
+
+        reader.close();
+    }
+
+    @Benchmark
+    public void streamingParser(Blackhole blackhole) {
+        try (var parser = OBJECT_MAPPER.createParser(feed)) {
+            parser.nextToken();
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                blackhole.consume(OBJECT_MAPPER.readValue(parser, User.class));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import java.time.Duration;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.ItemReadListener;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.Chunk;
+
+/**
+ * Resizes chunks so that each one takes about {@code targetLatency} from its first read until it is written. The next size is
+ * derived from the measured latency per item of the previous chunk, at most halving or doubling it each time, and it is
+ * bounded by {@code minimum} and {@code maximum}.
+ * <p>
+ * A chunk-oriented step reads the same number of items for every chunk and cannot end one early, so {@link #chunkSize()} is
+ * picked up by the next execution of the step, and {@code maximum} is what bounds the number of items held in memory within
+ * an execution. Every decision is written to the step's
+ * {@link org.springframework.batch.infrastructure.item.ExecutionContext} as {@code chunk.size} together with the latency of
+ * the chunk that led to it as {@code chunk.latency}. Chunks are measured per thread, so the same instance can be shared by
+ * partitioned worker steps that run concurrently.
+ *
+ * @author Rashidi Zin
+ */
+class AdaptiveChunkSize<T> implements ChunkListener<T, T>, ItemReadListener<T>, StepExecutionListener {
+
+    static final String CHUNK_SIZE = "chunk.size";
+    static final String CHUNK_LATENCY = "chunk.latency";
+
+    private final ThreadLocal<Measurement> measurements = ThreadLocal.withInitial(Measurement::new);
+
+    private final int minimum;
+    private final int maximum;
+    private final Duration targetLatency;
+
+    private int chunkSize;
+
+    AdaptiveChunkSize(int initial, int minimum, int maximum, Duration targetLatency) {
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.targetLatency = targetLatency;
+        this.chunkSize = Math.clamp(initial, minimum, maximum);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        measurements.get().stepExecution = stepExecution;
+    }
+
+    @Override
+    public void beforeRead() {
+        var current = measurements.get();
+
+        if (current.startedAt == 0) {
+            current.startedAt = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterRead(T item) {
+        measurements.get().itemsRead++;
+    }
+
+    @Override
+    public void afterChunk(Chunk<T> chunk) {
+        var current = measurements.get();
+        var latency = Duration.ofNanos(System.nanoTime() - current.startedAt);
+        int next = current.itemsRead > 0 ? resize(latency, current) : chunkSize();
+
+        if (current.stepExecution != null) {
+            var executionContext = current.stepExecution.getExecutionContext();
+
+            executionContext.putInt(CHUNK_SIZE, next);
+            executionContext.putLong(CHUNK_LATENCY, latency.toMillis());
+        }
+
+        current.reset();
+    }
+
+    @Override
+    public void onChunkError(Exception exception, Chunk<T> chunk) {
+        measurements.get().reset();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        measurements.remove();
+
+        return stepExecution.getExitStatus();
+    }
+
+    synchronized int chunkSize() {
+        return chunkSize;
+    }
+
+    private synchronized int resize(Duration latency, Measurement current) {
+        double latencyPerItem = Math.max(1, latency.toNanos()) / (double) current.itemsRead;
+        double ideal = targetLatency.toNanos() / latencyPerItem;
+        double damped = Math.clamp(ideal, chunkSize / 2.0, chunkSize * 2.0);
+
+        chunkSize = Math.clamp(Math.round(damped), minimum, maximum);
+
+        return chunkSize;
+    }
+
+    private static class Measurement {
+
+        private StepExecution stepExecution;
+        private long startedAt;
+        private int itemsRead;
+
+        void reset() {
+            startedAt = 0;
+            itemsRead = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Logs the chunk metrics of {@link ChunkMetricsListener} every {@code batch.metrics.step}.
+ * <p>
+ * Every module of this repository builds on its own, so this class is copied into each batch module that uses it. The copies
+ * are kept identical apart from their package.
+ *
+ * @author Rashidi Zin
+ */
+@Configuration
+class MetricsConfiguration {
+
+    @Bean
+    LoggingMeterRegistry loggingMeterRegistry(@Value("${batch.metrics.step:30s}") Duration step) {
+        return new LoggingMeterRegistry(new LoggingRegistryConfig() {
+
+            @Override
+            public String get(String key) {
+                return null;
+            }
+
+            @Override
+            public Duration step() {
+                return step;
+            }
+
+        }, Clock.SYSTEM);
+    }
+
+}
@@ -0,0 +1,23 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+
+/**
+ * Filters out users whose content matches the digest recorded by the previous import, so that they never reach the writer.
+ *
+ * @author Rashidi Zin
+ */
+class UnchangedUserFilter implements ItemProcessor<User, User> {
+
+    private final UserDigests digests;
+
+    UnchangedUserFilter(UserDigests digests) {
+        this.digests = digests;
+    }
+
+    @Override
+    public User process(User user) {
+        return digests.unchanged(user) ? null : user;
+    }
+
+}
@@ -0,0 +1,80 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemStreamSupport;
+import org.springframework.batch.infrastructure.item.ItemStreamWriter;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+/**
+ * Upserts {@link User} documents by {@code id} through unordered {@link org.springframework.data.mongodb.core.BulkOperations}.
+ * A chunk is sent in bulks of at most {@code bulkSize} documents, so the number of round-trips does not depend on the
+ * chunk size. Inserted, matched, modified and upserted counts are kept in the step's {@link ExecutionContext}.
+ *
+ * @author Rashidi Zin
+ */
+class UserBulkWriter extends ItemStreamSupport implements ItemStreamWriter<User> {
+
+    static final String INSERTED = "inserted";
+    static final String MATCHED = "matched";
+    static final String MODIFIED = "modified";
+    static final String UPSERTED = "upserted";
+
+    private final MongoOperations mongo;
+    private final int bulkSize;
+
+    private long inserted;
+    private long matched;
+    private long modified;
+    private long upserted;
+
+    UserBulkWriter(MongoOperations mongo, int bulkSize) {
+        this.mongo = mongo;
+        this.bulkSize = bulkSize;
+
+        setName("userWriter");
+    }
+
+    @Override
+    public void write(Chunk<? extends User> chunk) {
+        List<? extends User> users = chunk.getItems();
+
+        for (int from = 0; from < users.size(); from += bulkSize) {
+            var bulk = mongo.bulkOps(UNORDERED, User.class);
+
+            users.subList(from, Math.min(from + bulkSize, users.size()))
+                    .forEach(user -> bulk.replaceOne(query(where("_id").is(user.id())), user, FindAndReplaceOptions.options().upsert()));
+
+            var result = bulk.execute();
+
+            inserted += result.getInsertedCount();
+            matched += result.getMatchedCount();
+            modified += result.getModifiedCount();
+            upserted += result.getUpserts().size();
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        inserted = executionContext.getLong(getExecutionContextKey(INSERTED), 0L);
+        matched = executionContext.getLong(getExecutionContextKey(MATCHED), 0L);
+        modified = executionContext.getLong(getExecutionContextKey(MODIFIED), 0L);
+        upserted = executionContext.getLong(getExecutionContextKey(UPSERTED), 0L);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        executionContext.putLong(getExecutionContextKey(INSERTED), inserted);
+        executionContext.putLong(getExecutionContextKey(MATCHED), matched);
+        executionContext.putLong(getExecutionContextKey(MODIFIED), modified);
+        executionContext.putLong(getExecutionContextKey(UPSERTED), upserted);
+    }
+
+}
@@ -0,0 +1,32 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * 64-bit fingerprint of the content of a {@link User} as it was last imported, kept apart from the user itself.
+ *
+ * @author Rashidi Zin
+ */
+@Document
+record UserDigest(@MongoId Long id, long hash) {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * FNV-1a over the JSON form of {@code user}, so any property added to {@link User} is covered without changing this.
+     */
+    static UserDigest of(User user, JsonMapper mapper) {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (byte b : mapper.writeValueAsBytes(user)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+
+        return new UserDigest(user.id(), hash);
+    }
+
+}
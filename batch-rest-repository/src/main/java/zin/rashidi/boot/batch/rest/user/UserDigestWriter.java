@@ -0,0 +1,48 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static org.springframework.data.mongodb.core.BulkOperations.BulkMode.UNORDERED;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.util.List;
+
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Records a {@link UserDigest} for every user written in the chunk, in bulks of at most {@code bulkSize} documents.
+ *
+ * @author Rashidi Zin
+ */
+class UserDigestWriter implements ItemWriter<User> {
+
+    private final MongoOperations mongo;
+    private final JsonMapper mapper;
+    private final int bulkSize;
+
+    UserDigestWriter(MongoOperations mongo, JsonMapper mapper, int bulkSize) {
+        this.mongo = mongo;
+        this.mapper = mapper;
+        this.bulkSize = bulkSize;
+    }
+
+    @Override
+    public void write(Chunk<? extends User> chunk) {
+        List<? extends User> users = chunk.getItems();
+
+        for (int from = 0; from < users.size(); from += bulkSize) {
+            var bulk = mongo.bulkOps(UNORDERED, UserDigest.class);
+
+            users.subList(from, Math.min(from + bulkSize, users.size())).stream()
+                    .map(user -> UserDigest.of(user, mapper))
+                    .forEach(digest -> bulk.replaceOne(query(where("_id").is(digest.id())), digest, FindAndReplaceOptions.options().upsert()));
+
+            bulk.execute();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+import java.util.Arrays;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Snapshot of the {@link UserDigest} collection taken when an import starts. Digests are streamed in {@code id} order into
+ * two parallel {@code long} arrays, about 16 bytes per user, and looked up by binary search.
+ *
+ * @author Rashidi Zin
+ */
+class UserDigests {
+
+    private final JsonMapper mapper;
+    private final long[] ids;
+    private final long[] hashes;
+    private final int size;
+
+    UserDigests(MongoOperations mongo, JsonMapper mapper) {
+        this.mapper = mapper;
+
+        int capacity = (int) mongo.count(new Query(), UserDigest.class);
+        long[] ids = new long[capacity];
+        long[] hashes = new long[capacity];
+        int size = 0;
+
+        try (var digests = mongo.stream(new Query().with(Sort.by(ASC, "_id")), UserDigest.class)) {
+            for (var iterator = digests.iterator(); iterator.hasNext() && size < capacity; size++) {
+                var digest = iterator.next();
+
+                ids[size] = digest.id();
+                hashes[size] = digest.hash();
+            }
+        }
+
+        this.ids = ids;
+        this.hashes = hashes;
+        this.size = size;
+    }
+
+    /**
+     * Whether {@code user} was imported before with exactly the same content.
+     */
+    boolean unchanged(User user) {
+        int index = Arrays.binarySearch(ids, 0, size, user.id());
+
+        return index >= 0 && hashes[index] == UserDigest.of(user, mapper).hash();
+    }
+
+}
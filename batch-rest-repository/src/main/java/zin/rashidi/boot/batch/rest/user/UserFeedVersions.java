@@ -0,0 +1,35 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import java.net.URI;
+import java.util.Optional;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Remembers the {@code ETag} of the last remote feed that was imported completely, keyed by its URI.
+ *
+ * @author Rashidi Zin
+ */
+class UserFeedVersions {
+
+    private final MongoOperations mongo;
+
+    UserFeedVersions(MongoOperations mongo) {
+        this.mongo = mongo;
+    }
+
+    Optional<String> find(URI uri) {
+        return Optional.ofNullable(mongo.findById(uri.toString(), UserFeed.class)).map(UserFeed::entityTag);
+    }
+
+    void save(URI uri, String entityTag) {
+        mongo.save(new UserFeed(uri.toString(), entityTag));
+    }
+
+    @Document
+    record UserFeed(@MongoId String uri, String entityTag) {
+    }
+
+}
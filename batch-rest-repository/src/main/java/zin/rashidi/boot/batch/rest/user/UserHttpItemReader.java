@@ -0,0 +1,222 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static java.net.http.HttpResponse.BodyHandlers.ofInputStream;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.support.AbstractItemCountingItemStreamItemReader;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Streams {@link User} records from a remote JSON array. The response is requested with gzip, decoded through a buffer of
+ * {@code bufferSize} bytes and parsed one token at a time, so memory does not grow with the size of the feed.
+ * <p>
+ * Besides the record index, the byte offset that follows the last record read is saved in the {@link ExecutionContext}.
+ * A restarted execution asks for the remainder of the array with a {@code Range} request. When the server does not honour
+ * it, the reader falls back to a full download and skips the records already read without binding them.
+ * <p>
+ * Given {@link UserFeedVersions}, a fresh execution sends the {@code ETag} of the last feed that was imported completely as
+ * {@code If-None-Match}. A {@code 304 Not Modified} leaves the reader without any records, so the step ends straight away.
+ * The {@code ETag} of the feed being read is only recorded once the step has {@link BatchStatus#COMPLETED}.
+ *
+ * @author Rashidi Zin
+ */
+class UserHttpItemReader extends AbstractItemCountingItemStreamItemReader<User> implements StepExecutionListener {
+
+    static final String BYTE_OFFSET = "byte.offset";
+    static final String ENTITY_TAG = "entity.tag";
+
+    /**
+     * Placed in front of a partial response so that {@code ,{...},{...}]} parses as an array with a leading {@code null}.
+     */
+    private static final byte[] RESUME_PREFIX = "[null".getBytes(US_ASCII);
+
+    private final HttpClient client;
+    private final URI uri;
+    private final JsonMapper mapper;
+    private final int bufferSize;
+
+    private UserFeedVersions versions;
+    private String entityTag;
+    private long resumeOffset;
+    private long baseOffset;
+    private long offset;
+    private boolean resumed;
+    private JsonParser parser;
+
+    UserHttpItemReader(HttpClient client, URI uri, JsonMapper mapper, int bufferSize) {
+        this.client = client;
+        this.uri = uri;
+        this.mapper = mapper;
+        this.bufferSize = bufferSize;
+
+        setName("userReader");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        resumeOffset = isSaveState() ? executionContext.getLong(getExecutionContextKey(BYTE_OFFSET), 0L) : 0L;
+        entityTag = isSaveState() ? executionContext.getString(getExecutionContextKey(ENTITY_TAG), null) : null;
+        super.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        super.update(executionContext);
+
+        if (isSaveState()) {
+            executionContext.putLong(getExecutionContextKey(BYTE_OFFSET), offset);
+
+            if (entityTag != null) {
+                executionContext.putString(getExecutionContextKey(ENTITY_TAG), entityTag);
+            }
+        }
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        var response = client.send(request(), ofInputStream());
+
+        switch (response.statusCode()) {
+            case 206 -> resume(response);
+            case 200 -> stream(response);
+            case 304 -> response.body().close();
+            default -> {
+                response.body().close();
+                throw new IllegalStateException("Unexpected status %d from %s".formatted(response.statusCode(), uri));
+            }
+        }
+    }
+
+    @Override
+    protected User doRead() {
+        if (parser == null || parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        var user = mapper.readValue(parser, User.class);
+
+        offset = baseOffset + parser.currentLocation().getByteOffset();
+
+        return user;
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) {
+        if (resumed || parser == null) {
+            return;
+        }
+
+        for (int skipped = 0; skipped < itemIndex && parser.nextToken() == JsonToken.START_OBJECT; skipped++) {
+            parser.skipChildren();
+        }
+
+        offset = parser.currentLocation().getByteOffset();
+    }
+
+    @Override
+    protected void doClose() {
+        if (parser != null) {
+            parser.close();
+            parser = null;
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (versions != null && entityTag != null && stepExecution.getStatus() == BatchStatus.COMPLETED) {
+            versions.save(uri, entityTag);
+        }
+
+        return stepExecution.getExitStatus();
+    }
+
+    void setFeedVersions(UserFeedVersions versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Byte offsets only line up with the identity encoding, so a restart gives up compression for its {@code Range} request.
+     * The request is conditional on the feed still having the {@code ETag} seen before the failure.
+     */
+    private HttpRequest request() {
+        var request = HttpRequest.newBuilder(uri).header("Accept", "application/json");
+
+        if (resumeOffset > 0) {
+            request.header("Accept-Encoding", "identity").header("Range", "bytes=%d-".formatted(resumeOffset));
+
+            if (entityTag != null) {
+                request.header("If-Range", entityTag);
+            }
+        } else {
+            request.header("Accept-Encoding", "gzip");
+
+            if (versions != null) {
+                versions.find(uri).ifPresent(tag -> request.header("If-None-Match", tag));
+            }
+        }
+
+        return request.build();
+    }
+
+    private void resume(HttpResponse<InputStream> response) {
+        var input = new SequenceInputStream(new ByteArrayInputStream(RESUME_PREFIX), buffered(response.body()));
+
+        parser = mapper.createParser(input);
+        baseOffset = resumeOffset - RESUME_PREFIX.length;
+        offset = resumeOffset;
+        resumed = true;
+
+        expect(JsonToken.START_ARRAY);
+        expect(JsonToken.VALUE_NULL);
+    }
+
+    private void stream(HttpResponse<InputStream> response) throws IOException {
+        parser = mapper.createParser(decoded(response));
+        entityTag = response.headers().firstValue("ETag").orElse(null);
+        baseOffset = 0;
+        offset = 0;
+        resumed = false;
+
+        expect(JsonToken.START_ARRAY);
+    }
+
+    private InputStream decoded(HttpResponse<InputStream> response) throws IOException {
+        var gzip = response.headers().firstValue("Content-Encoding")
+                .filter("gzip"::equalsIgnoreCase)
+                .isPresent();
+
+        return gzip ? new GZIPInputStream(buffered(response.body()), bufferSize) : buffered(response.body());
+    }
+
+    private InputStream buffered(InputStream input) {
+        return new BufferedInputStream(input, bufferSize);
+    }
+
+    private void expect(JsonToken expected) {
+        var token = parser.nextToken();
+
+        if (token != expected) {
+            throw new IllegalStateException("Expected %s from %s but found %s".formatted(expected, uri, token));
+        }
+    }
+
+}
@@ -1,23 +1,48 @@
 package zin.rashidi.boot.batch.rest.user;
 
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import com.mongodb.WriteConcern;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import tools.jackson.databind.DeserializationFeature;
 import tools.jackson.databind.json.JsonMapper;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.Job;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.ItemProcessListener;
+import org.springframework.batch.core.listener.ItemReadListener;
+import org.springframework.batch.core.listener.ItemWriteListener;
+import org.springframework.batch.core.listener.StepExecutionListener;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.Step;
 import org.springframework.batch.core.step.builder.StepBuilder;
-import org.springframework.batch.infrastructure.item.data.MongoItemWriter;
-import org.springframework.batch.infrastructure.item.data.builder.MongoItemWriterBuilder;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemStreamReader;
+import org.springframework.batch.infrastructure.item.ItemWriter;
 import org.springframework.batch.infrastructure.item.json.JacksonJsonObjectReader;
-import org.springframework.batch.infrastructure.item.json.JsonItemReader;
 import org.springframework.batch.infrastructure.item.json.builder.JsonItemReaderBuilder;
+import org.springframework.batch.infrastructure.item.support.CompositeItemWriter;
+import org.springframework.batch.infrastructure.item.support.PassThroughItemProcessor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.transaction.PlatformTransactionManager;
 
 /**
@@ -33,31 +58,112 @@ class UserJobConfiguration {
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
     private final MongoOperations mongo;
+    private final MeterRegistry meterRegistry;
     private final Resource usersResource;
+    private final int partitions;
+    private final int chunkSize;
+    private final int bulkSize;
+    private final int bufferSize;
+    private final boolean incremental;
 
     UserJobConfiguration(JobRepository jobRepository, PlatformTransactionManager transactionManager, MongoOperations mongo,
-                         @Value("${batch.users.resource:https://jsonplaceholder.typicode.com/users}") Resource usersResource) {
+                         ObjectProvider<MeterRegistry> meterRegistry,
+                         @Value("${batch.users.resource:https://jsonplaceholder.typicode.com/users}") Resource usersResource,
+                         @Value("${batch.users.partitions:1}") int partitions,
+                         @Value("${batch.users.chunk-size:10}") int chunkSize,
+                         @Value("${batch.users.bulk-size:1000}") int bulkSize,
+                         @Value("${batch.users.buffer-size:65536}") int bufferSize,
+                         @Value("${batch.users.incremental:false}") boolean incremental) {
         this.jobRepository = jobRepository;
         this.transactionManager = transactionManager;
         this.mongo = mongo;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
         this.usersResource = usersResource;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.bulkSize = bulkSize;
+        this.bufferSize = bufferSize;
+        this.incremental = incremental;
     }
 
     @Bean
-    public Job userJob() throws MalformedURLException {
-        return new JobBuilder("userJob", jobRepository).start(step()).build();
+    public Job userJob(Step userStep) {
+        return new JobBuilder("userJob", jobRepository).start(userStep).build();
+    }
+
+    /**
+     * Built for every execution of {@code userJob}, so that it reads chunks of the size that {@link AdaptiveChunkSize} settled
+     * on during the previous executions.
+     */
+    @Bean
+    @JobScope
+    Step userStep(AdaptiveChunkSize<User> chunkSize, UserRangePartitioner partitioner, UserSliceItemReader partitionReader,
+                  UserBulkWriter writer, UserDigests userDigests) throws MalformedURLException {
+        if (partitions > 1) {
+            return new StepBuilder("userStep", jobRepository)
+                    .partitioner("userWorkerStep", partitioner)
+                    .step(step("userWorkerStep", partitionReader, chunkSize, writer, userDigests))
+                    .gridSize(partitions)
+                    .taskExecutor(partitionTaskExecutor())
+                    .listener((StepExecutionListener) partitioner)
+                    .build();
+        }
+
+        return step("userStep", reader(), chunkSize, writer, userDigests);
     }
 
-    private Step step() throws MalformedURLException {
-        return new StepBuilder("userStep", jobRepository)
-                .<User, User>chunk(10)
+    private Step step(String name, ItemStreamReader<User> reader, AdaptiveChunkSize<User> chunkSize, UserBulkWriter writer,
+                      UserDigests userDigests) {
+        var metrics = new ChunkMetricsListener<User, User>(meterRegistry, "userJob", name);
+        var builder = new StepBuilder(name, jobRepository)
+                .<User, User>chunk(chunkSize.chunkSize())
                 .transactionManager(transactionManager)
-                .reader(reader())
-                .writer(writer())
-                .build();
+                .reader(reader)
+                .processor(processor(userDigests))
+                .writer(itemWriter(writer))
+                .listener((ChunkListener<User, User>) chunkSize)
+                .listener((ItemReadListener<User>) chunkSize)
+                .listener((StepExecutionListener) chunkSize)
+                .listener((ChunkListener<User, User>) metrics)
+                .listener((ItemReadListener<User>) metrics)
+                .listener((ItemProcessListener<User, User>) metrics)
+                .listener((ItemWriteListener<User>) metrics)
+                .listener((StepExecutionListener) metrics);
+
+        if (reader instanceof StepExecutionListener listener) {
+            builder.listener(listener);
+        }
+
+        return builder.build();
     }
 
-    private JsonItemReader<User> reader() {
+    private TaskExecutor partitionTaskExecutor() {
+        var executor = new SimpleAsyncTaskExecutor("user-partition-");
+
+        executor.setConcurrencyLimit(partitions);
+
+        return executor;
+    }
+
+    /**
+     * In incremental mode, users whose content has not changed since the previous import are filtered out.
+     */
+    private ItemProcessor<User, User> processor(UserDigests userDigests) {
+        return incremental ? new UnchangedUserFilter(userDigests) : new PassThroughItemProcessor<>();
+    }
+
+    /**
+     * In incremental mode, a {@link UserDigest} is recorded for each user once the user itself has been written.
+     */
+    private ItemWriter<User> itemWriter(UserBulkWriter writer) {
+        return incremental ? new CompositeItemWriter<>(List.of(writer, new UserDigestWriter(mongo, OBJECT_MAPPER, bulkSize))) : writer;
+    }
+
+    private ItemStreamReader<User> reader() throws MalformedURLException {
+        if (usersResource instanceof UrlResource resource && resource.getURL().getProtocol().startsWith("http")) {
+            return httpReader(resource);
+        }
+
         JacksonJsonObjectReader<User> jsonObjectReader = new JacksonJsonObjectReader<>(User.class);
 
         jsonObjectReader.setMapper(OBJECT_MAPPER);
@@ -69,10 +175,76 @@ class UserJobConfiguration {
                 .build();
     }
 
-    private MongoItemWriter<User> writer() {
-        return new MongoItemWriterBuilder<User>()
-                .template(mongo)
-                .build();
+    private UserHttpItemReader httpReader(UrlResource resource) throws MalformedURLException {
+        try {
+            var client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+
+            var reader = new UserHttpItemReader(client, resource.getURL().toURI(), OBJECT_MAPPER, bufferSize);
+
+            if (incremental) {
+                reader.setFeedVersions(new UserFeedVersions(mongo));
+            }
+
+            return reader;
+        } catch (URISyntaxException e) {
+            throw new MalformedURLException(e.getMessage());
+        }
+    }
+
+    /**
+     * Splits the feed once per execution of the partitioned step, see {@link UserRangePartitioner}.
+     */
+    @Bean
+    @StepScope
+    UserRangePartitioner partitioner() {
+        return new UserRangePartitioner(usersResource, OBJECT_MAPPER);
+    }
+
+    /**
+     * Reads the slice assigned by {@link UserRangePartitioner} to the current worker step.
+     */
+    @Bean
+    @StepScope
+    UserSliceItemReader partitionReader(@Value("#{stepExecutionContext['file']}") String file,
+                                        @Value("#{stepExecutionContext['byteOffset']}") Long byteOffset,
+                                        @Value("#{stepExecutionContext['minIndex']}") Integer minIndex,
+                                        @Value("#{stepExecutionContext['maxIndex']}") Integer maxIndex) {
+        return new UserSliceItemReader(Path.of(file), byteOffset, maxIndex - minIndex, OBJECT_MAPPER, bufferSize);
+    }
+
+    /**
+     * Digests of the previous import, loaded once per job execution and shared by every worker step.
+     */
+    @Bean
+    @JobScope
+    UserDigests userDigests() {
+        return new UserDigests(mongo, OBJECT_MAPPER);
+    }
+
+    /**
+     * Starts from {@code batch.users.chunk-size} and resizes chunks toward {@code batch.users.chunk-latency}.
+     */
+    @Bean
+    AdaptiveChunkSize<User> adaptiveChunkSize(@Value("${batch.users.chunk-size-min:10}") int minimum,
+                                              @Value("${batch.users.chunk-size-max:10000}") int maximum,
+                                              @Value("${batch.users.chunk-latency:500ms}") Duration targetLatency) {
+        return new AdaptiveChunkSize<>(chunkSize, minimum, maximum, targetLatency);
+    }
+
+    /**
+     * Upserts users with the write concern given by the {@code writeConcern} job parameter, such as {@code MAJORITY} or
+     * {@code W1}. Defaults to {@code ACKNOWLEDGED}.
+     */
+    @Bean
+    @StepScope
+    UserBulkWriter writer(MongoDatabaseFactory mongoDatabaseFactory,
+                          @Value("#{jobParameters['writeConcern'] ?: 'ACKNOWLEDGED'}") String writeConcern) {
+        var template = new MongoTemplate(mongoDatabaseFactory, mongo.getConverter());
+
+        template.setWriteConcern(Optional.ofNullable(WriteConcern.valueOf(writeConcern))
+                .orElseThrow(() -> new IllegalArgumentException("Unknown write concern " + writeConcern)));
+
+        return new UserBulkWriter(template, bulkSize);
     }
 
 }
@@ -0,0 +1,129 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.partition.Partitioner;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.core.io.Resource;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Splits the JSON array behind {@code usersResource} into contiguous record ranges in a single pass. A resource that is not a
+ * file, such as a remote feed, is copied to a temporary file first so that it is downloaded only once.
+ * <p>
+ * Each range is stored as {@code minIndex} (inclusive) and {@code maxIndex} (exclusive) in the partition's
+ * {@link ExecutionContext}, together with the {@code file} to read and the {@code byteOffset} at which its first record starts.
+ * The temporary file is deleted once the step is {@link BatchStatus#COMPLETED} and kept otherwise, as a restart reads it again.
+ *
+ * @author Rashidi Zin
+ */
+class UserRangePartitioner implements Partitioner, StepExecutionListener {
+
+    static final String MIN_INDEX = "minIndex";
+    static final String MAX_INDEX = "maxIndex";
+    static final String FILE = "file";
+    static final String BYTE_OFFSET = "byteOffset";
+
+    private final Resource resource;
+    private final JsonMapper mapper;
+
+    private Path spooled;
+
+    UserRangePartitioner(Resource resource, JsonMapper mapper) {
+        this.resource = resource;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        var file = file();
+        var offsets = offsets(file);
+        int total = offsets.length;
+        int size = Math.max(1, (total + gridSize - 1) / gridSize);
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+
+        for (int min = 0, partition = 0; min < total; min += size, partition++) {
+            var context = new ExecutionContext();
+
+            context.putInt(MIN_INDEX, min);
+            context.putInt(MAX_INDEX, Math.min(min + size, total));
+            context.putString(FILE, file.toString());
+            context.putLong(BYTE_OFFSET, offsets[min]);
+
+            partitions.put("partition" + partition, context);
+        }
+
+        return partitions;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (spooled != null && stepExecution.getStatus() == BatchStatus.COMPLETED) {
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return stepExecution.getExitStatus();
+    }
+
+    private Path file() {
+        try {
+            if (resource.isFile()) {
+                return resource.getFile().toPath();
+            }
+
+            spooled = Files.createTempFile("users", ".json");
+            spooled.toFile().deleteOnExit();
+
+            try (var input = resource.getInputStream()) {
+                Files.copy(input, spooled, REPLACE_EXISTING);
+            }
+
+            return spooled;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records the byte offset at which each record starts by walking the token stream, without binding any of them to
+     * {@link User}.
+     */
+    private long[] offsets(Path file) {
+        try (var input = Files.newInputStream(file); JsonParser parser = mapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Expected %s to contain a JSON array".formatted(resource));
+            }
+
+            var offsets = LongStream.builder();
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                offsets.add(parser.currentTokenLocation().getByteOffset());
+                parser.skipChildren();
+            }
+
+            return offsets.build().toArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import org.springframework.batch.infrastructure.item.support.AbstractItemCountingItemStreamItemReader;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Reads the {@code [minIndex, maxIndex)} slice assigned by {@link UserRangePartitioner} from a JSON array of {@link User}.
+ * The file is opened at the {@code byteOffset} of the first record in the slice, so the records before it are neither read nor
+ * parsed, and reading stops after {@code maxIndex - minIndex} records.
+ *
+ * @author Rashidi Zin
+ */
+class UserSliceItemReader extends AbstractItemCountingItemStreamItemReader<User> {
+
+    /**
+     * Placed in front of the slice so that {@code {...},{...},...} parses as the remainder of an array.
+     */
+    private static final byte[] SLICE_PREFIX = "[".getBytes(US_ASCII);
+
+    private final Path file;
+    private final long byteOffset;
+    private final JsonMapper mapper;
+    private final int bufferSize;
+
+    private JsonParser parser;
+
+    UserSliceItemReader(Path file, long byteOffset, int items, JsonMapper mapper, int bufferSize) {
+        this.file = file;
+        this.byteOffset = byteOffset;
+        this.mapper = mapper;
+        this.bufferSize = bufferSize;
+
+        setName("userReader");
+        setMaxItemCount(items);
+    }
+
+    /**
+     * The parser is only kept once the slice is known to start with a record, the file is closed otherwise.
+     */
+    @Override
+    protected void doOpen() throws IOException {
+        var channel = FileChannel.open(file, READ);
+
+        try {
+            var input = new SequenceInputStream(new ByteArrayInputStream(SLICE_PREFIX),
+                    new BufferedInputStream(Channels.newInputStream(channel.position(byteOffset)), bufferSize));
+            var opened = mapper.createParser(input);
+
+            if (opened.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalStateException("Expected a record at offset %d of %s".formatted(byteOffset, file));
+            }
+
+            parser = opened;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected User doRead() {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        return mapper.readValue(parser, User.class);
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) {
+        for (int skipped = 0; skipped < itemIndex && parser.nextToken() == JsonToken.START_OBJECT; skipped++) {
+            parser.skipChildren();
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        if (parser != null) {
+            parser.close();
+            parser = null;
+        }
+    }
+
+}
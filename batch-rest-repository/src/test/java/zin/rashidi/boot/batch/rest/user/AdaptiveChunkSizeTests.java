@@ -0,0 +1,75 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+/**
+ * @author Rashidi Zin
+ */
+class AdaptiveChunkSizeTests {
+
+    private final StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+
+    @Test
+    @DisplayName("Given chunks are written well within the target latency When a chunk completes Then the next chunk is twice as large")
+    void grow() {
+        var chunkSize = new AdaptiveChunkSize<User>(10, 1, 1000, Duration.ofSeconds(10));
+
+        chunk(chunkSize, 10, Duration.ZERO);
+
+        assertThat(chunkSize.chunkSize()).isEqualTo(20);
+        assertThat(stepExecution.getExecutionContext().getInt(AdaptiveChunkSize.CHUNK_SIZE)).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("Given chunks are written slower than the target latency When a chunk completes Then the next chunk is half as large")
+    void shrink() {
+        var chunkSize = new AdaptiveChunkSize<User>(10, 1, 1000, Duration.ofNanos(1));
+
+        chunk(chunkSize, 10, Duration.ofMillis(20));
+
+        assertThat(chunkSize.chunkSize()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Given chunks are written well within the target latency When the chunk size reaches the maximum Then it stays at the maximum")
+    void maximum() {
+        var chunkSize = new AdaptiveChunkSize<User>(10, 1, 15, Duration.ofSeconds(10));
+
+        chunk(chunkSize, 10, Duration.ZERO);
+
+        assertThat(chunkSize.chunkSize()).isEqualTo(15);
+    }
+
+    private void chunk(AdaptiveChunkSize<User> chunkSize, int items, Duration latency) {
+        List<User> users = new ArrayList<>();
+
+        chunkSize.beforeStep(stepExecution);
+
+        for (long id = 1; id <= items; id++) {
+            var user = new User(id, "user-" + id);
+
+            chunkSize.beforeRead();
+            chunkSize.afterRead(user);
+            users.add(user);
+        }
+
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        chunkSize.afterChunk(new Chunk<>(users));
+    }
+
+}
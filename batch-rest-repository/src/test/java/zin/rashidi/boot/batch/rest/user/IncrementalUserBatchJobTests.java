@@ -0,0 +1,198 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
+import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.test.JobOperatorTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+import org.testcontainers.mysql.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+import static zin.rashidi.boot.batch.rest.user.IncrementalUserBatchJobTests.BatchTestConfiguration;
+import static zin.rashidi.boot.batch.rest.user.IncrementalUserBatchJobTests.MongoTestConfiguration;
+
+/**
+ * @author Rashidi Zin
+ */
+@Testcontainers
+@SpringBatchTest
+@SpringBootTest(classes = { BatchTestConfiguration.class, MongoTestConfiguration.class, UserJobConfiguration.class }, webEnvironment = NONE,
+        properties = "batch.users.incremental=true")
+class IncrementalUserBatchJobTests {
+
+    @Container
+    @ServiceConnection
+    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts")
+            .withInitScript("org/springframework/batch/core/schema-mysql.sql");
+
+    @Container
+    @ServiceConnection
+    private final static MongoDBContainer MONGO_DB_CONTAINER = new MongoDBContainer("mongo:latest");
+
+    private static final List<String> CONDITIONS = new CopyOnWriteArrayList<>();
+
+    private static HttpServer server;
+    private static volatile byte[] feed;
+
+    @Autowired
+    private JobOperatorTestUtils operator;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @DynamicPropertySource
+    static void usersResource(DynamicPropertyRegistry registry) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/users", IncrementalUserBatchJobTests::users);
+        server.start();
+
+        registry.add("batch.users.resource", () -> "http://localhost:%d/users".formatted(server.getAddress().getPort()));
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    void reset() throws IOException {
+        feed = new ClassPathResource("users.json").getContentAsByteArray();
+        CONDITIONS.clear();
+
+        mongoOperations.dropCollection(User.class);
+        mongoOperations.dropCollection(UserDigest.class);
+        mongoOperations.dropCollection(UserFeedVersions.UserFeed.class);
+    }
+
+    @Test
+    @DisplayName("Given the feed has not changed since the last import When the job is re-run Then the server answers 304 and no user is read")
+    void unchangedFeed() throws Exception {
+        assertThat(userStep(operator.startJob()).getWriteCount()).isEqualTo(10);
+
+        var step = userStep(operator.startJob());
+
+        assertThat(CONDITIONS).singleElement().isEqualTo(entityTag());
+        assertThat(step.getReadCount()).isZero();
+        assertThat(step.getWriteCount()).isZero();
+        assertThat(mongoOperations.findAll(User.class)).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("Given one user was renamed upstream When the job is re-run Then only that user is written and the other 9 are filtered")
+    void changedUser() throws Exception {
+        assertThat(userStep(operator.startJob()).getWriteCount()).isEqualTo(10);
+
+        feed = new String(feed, UTF_8).replace("\"Bret\"", "\"Bret_Leanne\"").getBytes(UTF_8);
+
+        var step = userStep(operator.startJob());
+
+        assertThat(step.getReadCount()).isEqualTo(10);
+        assertThat(step.getFilterCount()).isEqualTo(9);
+        assertThat(step.getWriteCount()).isEqualTo(1);
+        assertThat(mongoOperations.findById(1L, User.class)).extracting(User::username).isEqualTo("Bret_Leanne");
+    }
+
+    private static StepExecution userStep(JobExecution execution) {
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+        return execution.getStepExecutions().iterator().next();
+    }
+
+    private static String entityTag() {
+        return "\"%08x\"".formatted(Arrays.hashCode(feed));
+    }
+
+    private static void users(HttpExchange exchange) throws IOException {
+        var condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+        if (condition != null) {
+            CONDITIONS.add(condition);
+        }
+
+        exchange.getResponseHeaders().add("ETag", entityTag());
+
+        if (entityTag().equals(condition)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        var body = feed;
+
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (var output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    @TestConfiguration
+    static class BatchTestConfiguration extends JdbcDefaultBatchConfiguration {
+
+        @Override
+        protected DataSource getDataSource() {
+            return DataSourceBuilder.create()
+                    .url(MYSQL_CONTAINER.getJdbcUrl())
+                    .username(MYSQL_CONTAINER.getUsername())
+                    .password(MYSQL_CONTAINER.getPassword())
+                    .build();
+        }
+
+        @Override
+        @Bean
+        protected PlatformTransactionManager getTransactionManager() {
+            return new JdbcTransactionManager(getDataSource());
+        }
+
+    }
+
+    @TestConfiguration
+    static class MongoTestConfiguration extends AbstractMongoClientConfiguration {
+
+        @Override
+        protected String getDatabaseName() {
+            return "test";
+        }
+
+        @Override
+        protected void configureClientSettings(MongoClientSettings.Builder builder) {
+            builder.applyConnectionString(new ConnectionString(MONGO_DB_CONTAINER.getReplicaSetUrl()));
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.test.JobOperatorTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+import org.testcontainers.mysql.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.time.Duration.ofSeconds;
+import static java.util.Comparator.naturalOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+import static org.awaitility.Awaitility.await;
+import static zin.rashidi.boot.batch.rest.user.PartitionedUserBatchJobTests.BatchTestConfiguration;
+import static zin.rashidi.boot.batch.rest.user.PartitionedUserBatchJobTests.MongoTestConfiguration;
+
+/**
+ * @author Rashidi Zin
+ */
+@Testcontainers
+@SpringBatchTest
+@SpringBootTest(classes = { BatchTestConfiguration.class, MongoTestConfiguration.class, UserJobConfiguration.class }, webEnvironment = NONE,
+        properties = "batch.users.partitions=" + PartitionedUserBatchJobTests.PARTITIONS)
+class PartitionedUserBatchJobTests {
+
+    static final int PARTITIONS = 4;
+
+    private static final int TOTAL_USERS = 50_000;
+
+    @Container
+    @ServiceConnection
+    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts")
+            .withInitScript("org/springframework/batch/core/schema-mysql.sql");
+
+    @Container
+    @ServiceConnection
+    private final static MongoDBContainer MONGO_DB_CONTAINER = new MongoDBContainer("mongo:latest");
+
+    @Autowired
+    private JobOperatorTestUtils operator;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @DynamicPropertySource
+    static void usersResource(DynamicPropertyRegistry registry) {
+        var fixture = usersFixture();
+
+        registry.add("batch.users.resource", () -> "file:" + fixture);
+    }
+
+    @Test
+    @DisplayName("Given a feed of 50,000 users and 4 partitions When the job is COMPLETED Then every user is saved by balanced worker steps that run concurrently")
+    void launch() {
+        assumeThat(Runtime.getRuntime().availableProcessors()).isGreaterThanOrEqualTo(PARTITIONS);
+
+        await().atMost(ofSeconds(120)).untilAsserted(() -> {
+            var execution = operator.startJob();
+
+            assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+            var workers = execution.getStepExecutions().stream()
+                    .filter(step -> step.getStepName().startsWith("userWorkerStep"))
+                    .toList();
+
+            assertThat(workers).hasSize(PARTITIONS)
+                    .extracting(StepExecution::getWriteCount)
+                    .containsOnly((long) TOTAL_USERS / PARTITIONS);
+
+            var lastStarted = workers.stream().map(StepExecution::getStartTime).max(naturalOrder()).orElseThrow();
+            var firstEnded = workers.stream().map(StepExecution::getEndTime).min(naturalOrder()).orElseThrow();
+
+            assertThat(lastStarted).isBefore(firstEnded);
+
+            var durations = workers.stream().map(step -> Duration.between(step.getStartTime(), step.getEndTime()).toMillis()).toList();
+            long busy = durations.stream().mapToLong(Long::longValue).sum();
+            long elapsed = Duration.between(execution.getStartTime(), execution.getEndTime()).toMillis();
+
+            assertThat(Collections.max(durations)).isLessThanOrEqualTo(2 * Collections.min(durations));
+            assertThat((double) busy / elapsed).isGreaterThan(PARTITIONS / 2.0);
+        });
+
+        assertThat(mongoOperations.count(new Query(), User.class)).isEqualTo(TOTAL_USERS);
+    }
+
+    private static Path usersFixture() {
+        try {
+            var fixture = Files.createTempFile("users", ".json");
+            var users = IntStream.rangeClosed(1, TOTAL_USERS)
+                    .mapToObj(id -> "{\"id\": %d, \"username\": \"user-%d\"}".formatted(id, id))
+                    .collect(Collectors.joining(",\n", "[\n", "\n]"));
+
+            fixture.toFile().deleteOnExit();
+
+            return Files.writeString(fixture, users);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class BatchTestConfiguration extends JdbcDefaultBatchConfiguration {
+
+        @Override
+        protected DataSource getDataSource() {
+            return DataSourceBuilder.create()
+                    .url(MYSQL_CONTAINER.getJdbcUrl())
+                    .username(MYSQL_CONTAINER.getUsername())
+                    .password(MYSQL_CONTAINER.getPassword())
+                    .build();
+        }
+
+        @Override
+        @Bean
+        protected PlatformTransactionManager getTransactionManager() {
+            return new JdbcTransactionManager(getDataSource());
+        }
+
+    }
+
+    @TestConfiguration
+    static class MongoTestConfiguration extends AbstractMongoClientConfiguration {
+
+        @Override
+        protected String getDatabaseName() {
+            return "test";
+        }
+
+        @Override
+        protected void configureClientSettings(MongoClientSettings.Builder builder) {
+            builder.applyConnectionString(new ConnectionString(MONGO_DB_CONTAINER.getReplicaSetUrl()));
+        }
+
+    }
+
+}
@@ -2,10 +2,13 @@ package zin.rashidi.boot.batch.rest.user;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
 import org.springframework.batch.core.job.JobExecution;
+import org.springframework.batch.core.step.StepExecution;
 import org.springframework.batch.test.JobOperatorTestUtils;
 import org.springframework.batch.test.context.SpringBatchTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,11 +29,13 @@ import org.testcontainers.mysql.MySQLContainer;
 import javax.sql.DataSource;
 
 import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.batch.core.ExitStatus.COMPLETED;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
 import static org.awaitility.Awaitility.await;
 import static zin.rashidi.boot.batch.rest.user.UserBatchJobTests.BatchTestConfiguration;
+import static zin.rashidi.boot.batch.rest.user.UserBatchJobTests.MetricsTestConfiguration;
 import static zin.rashidi.boot.batch.rest.user.UserBatchJobTests.MongoTestConfiguration;
 
 /**
@@ -38,7 +43,7 @@ import static zin.rashidi.boot.batch.rest.user.UserBatchJobTests.MongoTestConfig
  */
 @Testcontainers
 @SpringBatchTest
-@SpringBootTest(classes = { BatchTestConfiguration.class, MongoTestConfiguration.class, UserJobConfiguration.class }, webEnvironment = NONE,
+@SpringBootTest(classes = { BatchTestConfiguration.class, MongoTestConfiguration.class, MetricsTestConfiguration.class, UserJobConfiguration.class }, webEnvironment = NONE,
         properties = "batch.users.resource=classpath:users.json")
 class UserBatchJobTests {
 
@@ -57,6 +62,9 @@ class UserBatchJobTests {
     @Autowired
     private MongoOperations mongoOperations;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     @DisplayName("Given there are 10 users returned from REST Service When the job is COMPLETED Then all users should be saved to MongoDB")
     void launch() {
@@ -72,6 +80,47 @@ class UserBatchJobTests {
         assertThat(persistedUsers).hasSize(10);
     }
 
+    @Test
+    @DisplayName("Given users were imported When the job is re-run with MAJORITY write concern Then existing users are matched instead of inserted again")
+    void reimport() throws Exception {
+
+        await().atMost(ofSeconds(30)).untilAsserted(() -> {
+            var execution = operator.startJob();
+
+            assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+        });
+
+        var parameters = operator.getUniqueJobParametersBuilder()
+                .addString("writeConcern", "MAJORITY")
+                .toJobParameters();
+
+        var execution = operator.startJob(parameters);
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+        assertThat(execution.getStepExecutions()).singleElement()
+                .extracting(StepExecution::getExecutionContext)
+                .satisfies(context -> {
+                    assertThat(context.getLong("userWriter.matched")).isEqualTo(10);
+                    assertThat(context.getLong("userWriter.upserted")).isZero();
+                });
+
+        assertThat(mongoOperations.findAll(User.class)).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("Given there are 10 users returned from REST Service When the job is COMPLETED Then the time spent reading, writing and committing each chunk is recorded")
+    void metrics() throws Exception {
+        var chunks = meterRegistry.get("batch.chunk").tag("step", "userStep").timer().count();
+        var items = meterRegistry.get("batch.chunk.items").tag("step", "userStep").counter().count();
+
+        assertThat(operator.startJob().getExitStatus()).isEqualTo(COMPLETED);
+
+        assertThat(meterRegistry.get("batch.chunk").tag("step", "userStep").timer().count()).isGreaterThan(chunks);
+        assertThat(meterRegistry.get("batch.chunk.items").tag("step", "userStep").counter().count() - items).isEqualTo(10);
+        assertThat(meterRegistry.get("batch.chunk.read").tag("step", "userStep").timer().totalTime(NANOSECONDS)).isPositive();
+        assertThat(meterRegistry.get("batch.chunk.commit").tag("step", "userStep").timer().totalTime(NANOSECONDS)).isPositive();
+    }
+
     @TestConfiguration
     static class BatchTestConfiguration extends JdbcDefaultBatchConfiguration {
 
@@ -107,4 +156,14 @@ class UserBatchJobTests {
 
     }
 
+    @TestConfiguration
+    static class MetricsTestConfiguration {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+    }
+
 }
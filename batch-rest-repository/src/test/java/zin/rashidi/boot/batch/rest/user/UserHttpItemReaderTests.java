@@ -0,0 +1,171 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.core.io.ClassPathResource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * @author Rashidi Zin
+ */
+class UserHttpItemReaderTests {
+
+    private static final JsonMapper OBJECT_MAPPER = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    private final List<String> encodings = new ArrayList<>();
+    private final List<String> ranges = new ArrayList<>();
+
+    private HttpServer server;
+    private byte[] users;
+    private boolean rangeSupported = true;
+
+    @BeforeEach
+    void start() throws IOException {
+        users = new ClassPathResource("users.json").getContentAsByteArray();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        server.createContext("/users", this::users);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Given the server supports gzip When users are read Then all 10 users are streamed from a compressed response")
+    void gzip() throws Exception {
+        var reader = reader();
+
+        reader.open(new ExecutionContext());
+
+        assertThat(readAll(reader)).extracting(User::id).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(encodings).containsExactly("gzip");
+
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("Given 4 users were read before a failure When the reader is reopened Then it resumes from the 5th user with a Range request")
+    void resumeWithRange() throws Exception {
+        var context = readFirstUsers(4);
+        var reader = reader();
+
+        reader.open(context);
+
+        assertThat(readAll(reader)).extracting(User::id).containsExactly(5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(ranges).containsExactly("bytes=%d-".formatted(context.getLong("userReader." + UserHttpItemReader.BYTE_OFFSET)));
+
+        reader.close();
+    }
+
+    @Test
+    @DisplayName("Given the server ignores Range requests When the reader is reopened Then it skips the 4 users already read")
+    void resumeWithoutRange() throws Exception {
+        var context = readFirstUsers(4);
+        var reader = reader();
+
+        rangeSupported = false;
+        reader.open(context);
+
+        assertThat(readAll(reader)).extracting(User::id).containsExactly(5L, 6L, 7L, 8L, 9L, 10L);
+
+        reader.close();
+    }
+
+    private ExecutionContext readFirstUsers(int total) throws Exception {
+        var context = new ExecutionContext();
+        var reader = reader();
+
+        reader.open(context);
+
+        for (int i = 0; i < total; i++) {
+            reader.read();
+        }
+
+        reader.update(context);
+        reader.close();
+
+        return context;
+    }
+
+    private UserHttpItemReader reader() {
+        var uri = URI.create("http://localhost:%d/users".formatted(server.getAddress().getPort()));
+
+        return new UserHttpItemReader(HttpClient.newHttpClient(), uri, OBJECT_MAPPER, 16);
+    }
+
+    private List<User> readAll(UserHttpItemReader reader) throws Exception {
+        List<User> read = new ArrayList<>();
+
+        for (var user = reader.read(); user != null; user = reader.read()) {
+            read.add(user);
+        }
+
+        return read;
+    }
+
+    private void users(HttpExchange exchange) throws IOException {
+        var range = Optional.ofNullable(exchange.getRequestHeaders().getFirst("Range")).filter(_ -> rangeSupported);
+        var gzip = "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        var body = range.map(value -> slice(users, value)).orElse(users);
+
+        range.ifPresent(ranges::add);
+
+        if (gzip) {
+            encodings.add("gzip");
+            body = compress(body);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+
+        exchange.sendResponseHeaders(range.isPresent() ? 206 : 200, body.length);
+
+        try (var output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static byte[] slice(byte[] content, String range) {
+        int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+
+        return Arrays.copyOfRange(content, from, content.length);
+    }
+
+    private static byte[] compress(byte[] content) {
+        var compressed = new ByteArrayOutputStream();
+
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return compressed.toByteArray();
+    }
+
+}
@@ -0,0 +1,159 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.test.JobOperatorTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+import org.testcontainers.mysql.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+import static zin.rashidi.boot.batch.rest.user.UserJobBenchmarkTests.BatchTestConfiguration;
+import static zin.rashidi.boot.batch.rest.user.UserJobBenchmarkTests.MongoTestConfiguration;
+
+/**
+ * Runs {@code userJob} against a generated feed of {@code benchmark.users} users, split into {@code benchmark.partitions}
+ * partitions. Excluded from {@code test}, run it with {@code ./gradlew benchmark -Pbenchmark.users=1000000}.
+ *
+ * @author Rashidi Zin
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBatchTest
+@SpringBootTest(classes = { BatchTestConfiguration.class, MongoTestConfiguration.class, UserJobConfiguration.class }, webEnvironment = NONE)
+class UserJobBenchmarkTests {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 100_000);
+
+    @Container
+    @ServiceConnection
+    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts")
+            .withInitScript("org/springframework/batch/core/schema-mysql.sql");
+
+    @Container
+    @ServiceConnection
+    private final static MongoDBContainer MONGO_DB_CONTAINER = new MongoDBContainer("mongo:latest");
+
+    @Autowired
+    private JobOperatorTestUtils operator;
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @DynamicPropertySource
+    static void usersResource(DynamicPropertyRegistry registry) {
+        var fixture = usersFixture();
+
+        registry.add("batch.users.resource", () -> "file:" + fixture);
+        registry.add("batch.users.partitions", () -> Integer.getInteger("benchmark.partitions", 1));
+    }
+
+    @Test
+    @DisplayName("Given a generated feed of users When userJob is COMPLETED Then every user is saved and throughput, allocation and peak heap are reported")
+    void userJob(TestReporter reporter) throws Exception {
+        var report = BenchmarkReport.start();
+        var execution = operator.startJob();
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+        long written = execution.getStepExecutions().stream()
+                .filter(step -> step.getStepName().equals("userStep"))
+                .mapToLong(StepExecution::getWriteCount)
+                .sum();
+
+        reporter.publishEntry(report.stop("userJob", written));
+
+        assertThat(mongoOperations.count(new Query(), User.class)).isEqualTo(USERS);
+    }
+
+    private static Path usersFixture() {
+        try {
+            var fixture = Files.createTempFile("users", ".json");
+
+            fixture.toFile().deleteOnExit();
+
+            try (var writer = Files.newBufferedWriter(fixture)) {
+                writer.write('[');
+
+                for (int id = 1; id <= USERS; id++) {
+                    if (id > 1) {
+                        writer.write(",\n");
+                    }
+
+                    writer.write("{\"id\":%1$d,\"username\":\"user.%1$d\",\"email\":\"user.%1$d@example.com\"}".formatted(id));
+                }
+
+                writer.write(']');
+            }
+
+            return fixture;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class BatchTestConfiguration extends JdbcDefaultBatchConfiguration {
+
+        @Override
+        protected DataSource getDataSource() {
+            return DataSourceBuilder.create()
+                    .url(MYSQL_CONTAINER.getJdbcUrl())
+                    .username(MYSQL_CONTAINER.getUsername())
+                    .password(MYSQL_CONTAINER.getPassword())
+                    .build();
+        }
+
+        @Override
+        @Bean
+        protected PlatformTransactionManager getTransactionManager() {
+            return new JdbcTransactionManager(getDataSource());
+        }
+
+    }
+
+    @TestConfiguration
+    static class MongoTestConfiguration extends AbstractMongoClientConfiguration {
+
+        @Override
+        protected String getDatabaseName() {
+            return "test";
+        }
+
+        @Override
+        protected void configureClientSettings(MongoClientSettings.Builder builder) {
+            builder.applyConnectionString(new ConnectionString(MONGO_DB_CONTAINER.getReplicaSetUrl()));
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package zin.rashidi.boot.batch.rest.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zin.rashidi.boot.batch.rest.user.UserRangePartitioner.BYTE_OFFSET;
+import static zin.rashidi.boot.batch.rest.user.UserRangePartitioner.FILE;
+import static zin.rashidi.boot.batch.rest.user.UserRangePartitioner.MAX_INDEX;
+import static zin.rashidi.boot.batch.rest.user.UserRangePartitioner.MIN_INDEX;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * @author Rashidi Zin
+ */
+class UserRangePartitionerTests {
+
+    private static final JsonMapper OBJECT_MAPPER = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    @Test
+    @DisplayName("Given a remote feed of 10 users and 3 partitions When each slice is read Then the feed is fetched once and every user is read by exactly one partition")
+    void partition() throws Exception {
+        var resource = new FetchCountingResource(new ClassPathResource("users.json").getContentAsByteArray());
+        var partitions = new UserRangePartitioner(resource, OBJECT_MAPPER).partition(3);
+
+        assertThat(partitions).hasSize(3);
+
+        List<List<Long>> slices = new ArrayList<>();
+
+        for (var context : partitions.values()) {
+            slices.add(read(context));
+        }
+
+        assertThat(slices).containsExactly(List.of(1L, 2L, 3L, 4L), List.of(5L, 6L, 7L, 8L), List.of(9L, 10L));
+        assertThat(resource.fetches).hasValue(1);
+    }
+
+    private List<Long> read(ExecutionContext partition) throws Exception {
+        var reader = new UserSliceItemReader(Path.of(partition.getString(FILE)), partition.getLong(BYTE_OFFSET),
+                partition.getInt(MAX_INDEX) - partition.getInt(MIN_INDEX), OBJECT_MAPPER, 16);
+        List<Long> ids = new ArrayList<>();
+
+        reader.open(new ExecutionContext());
+
+        for (var user = reader.read(); user != null; user = reader.read()) {
+            ids.add(user.id());
+        }
+
+        reader.close();
+
+        return ids;
+    }
+
+    private static class FetchCountingResource extends ByteArrayResource {
+
+        private final AtomicInteger fetches = new AtomicInteger();
+
+        FetchCountingResource(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            fetches.incrementAndGet();
+            return super.getInputStream();
+        }
+
+    }
+
+}
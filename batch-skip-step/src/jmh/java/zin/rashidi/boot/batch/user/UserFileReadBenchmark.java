@@ -0,0 +1,91 @@
+package zin.rashidi.boot.batch.user;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.infrastructure.item.json.JacksonJsonObjectReader;
+import org.springframework.core.io.ByteArrayResource;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Measures the read path of {@link UserJobConfiguration}: {@link JacksonJsonObjectReader} binding {@link UserFile} records
+ * out of a JSON array with the same {@link JsonMapper} settings. Run with {@code ./gradlew jmh}, the {@code gc} profiler
+ * reports the allocation rate next to the throughput in users per second.
+ *
+ * @author Rashidi Zin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+public class UserFileReadBenchmark {
+
+    private static final JsonMapper OBJECT_MAPPER = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    @Param({ "1000", "100000" })
+    private int users;
+
+    private ByteArrayResource feed;
+
+    @Setup
+    public void generate() {
+        var content = IntStream.rangeClosed(1, users)
+                .mapToObj(UserFileReadBenchmark::user)
+                .collect(Collectors.joining(",", "[", "]"));
+
+        feed = new ByteArrayResource(content.getBytes(UTF_8));
+    }
+
+    /**
+     * Throughput is per feed, so divide by {@code users} for users per second.
+     */
+    @Benchmark
+    public void jacksonJsonObjectReader(Blackhole blackhole) throws Exception {
+        var reader = new JacksonJsonObjectReader<>(UserFile.class);
+
+        reader.setMapper(OBJECT_MAPPER);
+        reader.open(feed);
+
+        for (var user = reader.read(); user != null; user = reader.read()) {
+            blackhole.consume(user);
+        }
+
+        reader.close();
+    }
+
+    /**
+     * Baseline without Spring Batch, binding the same array through {@link tools.jackson.databind.MappingIterator}.
+     */
+    @Benchmark
+    public void mappingIterator(Blackhole blackhole) throws Exception {
+        try (var iterator = OBJECT_MAPPER.readerFor(UserFile.class).<UserFile>readValues(feed.getByteArray())) {
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+            }
+        }
+    }
+
+    static String user(int id) {
+        return """
+                {"id":%1$d,"name":"User %1$d","username":"user.%1$d","email":"user.%1$d@example.com",\
+                "address":{"street":"Kulas Light","suite":"Apt. %1$d","city":"Gwenborough","zipcode":"92998-3874",\
+                "geo":{"lat":"-37.3159","lng":"81.1496"}},"phone":"1-770-736-8031","website":"example.com",\
+                "company":{"name":"Romaguera-Crona","catchPhrase":"Multi-layered client-server neural-net","bs":"harness real-time e-markets"}}\
+                """.formatted(id);
+    }
+
+}
@@ -0,0 +1,90 @@
+package zin.rashidi.boot.batch.user;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import zin.rashidi.boot.batch.user.UsernameBlocklist.Verdict;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Compares looking usernames up in {@link UsernameBlocklist} with a plain {@link HashMap} holding the same entries, for
+ * usernames that are listed and for the far more common ones that are not. The heap retained by each is printed once per
+ * fork while setting up.
+ *
+ * @author Rashidi Zin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+public class UsernameBlocklistBenchmark {
+
+    @Param({ "10000", "1000000" })
+    private int entries;
+
+    private UsernameBlocklist blocklist;
+    private Map<String, Verdict> map;
+    private String[] listed;
+    private String[] unlisted;
+    private int next;
+
+    @Setup
+    public void load() {
+        long before = usedHeap();
+
+        blocklist = new UsernameBlocklist(null, entries, 0.01);
+
+        for (int i = 0; i < entries; i++) {
+            blocklist.apply("blocked." + i, Verdict.BLOCKED);
+        }
+
+        long blocklistHeap = usedHeap() - before;
+
+        map = new HashMap<>();
+
+        for (int i = 0; i < entries; i++) {
+            map.put("blocked." + i, Verdict.BLOCKED);
+        }
+
+        System.out.printf("%n%,d entries: blocklist %,d KB, map %,d KB%n", entries, blocklistHeap / 1024, (usedHeap() - before - blocklistHeap) / 1024);
+
+        listed = new String[1024];
+        unlisted = new String[1024];
+
+        for (int i = 0; i < listed.length; i++) {
+            listed[i] = "blocked." + (i * 7919 % entries);
+            unlisted[i] = "user." + i;
+        }
+    }
+
+    @Benchmark
+    public Verdict blocklistListed() {
+        return blocklist.verdict(listed[next++ & 1023]);
+    }
+
+    @Benchmark
+    public Verdict blocklistUnlisted() {
+        return blocklist.verdict(unlisted[next++ & 1023]);
+    }
+
+    @Benchmark
+    public Verdict mapUnlisted() {
+        return map.getOrDefault(unlisted[next++ & 1023], Verdict.ALLOWED);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+}
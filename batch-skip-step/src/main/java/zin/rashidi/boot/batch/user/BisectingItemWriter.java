@@ -0,0 +1,87 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.core.listener.SkipListener;
+import org.springframework.batch.core.step.skip.SkipPolicy;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Writes a chunk through {@code delegate} and, when it fails, splits the chunk in halves until the items that cannot be
+ * written are isolated. Each attempt runs behind a savepoint of the chunk's transaction, so a failed half is undone while
+ * the halves that succeed stay written. {@code k} bad items in a chunk of {@code n} cost {@code O(k log n)} writes instead
+ * of the {@code n} single item transactions of a scan.
+ * <p>
+ * An isolated item that {@code skipPolicy} allows to be skipped is recorded in {@code skips} and reported to
+ * {@code skipListener}, any other failure is rethrown and rolls the chunk back as usual. {@code skipPolicy} is given the skips
+ * of the whole step, so skips found by bisection count toward the same limit as those of the step itself.
+ *
+ * @author Rashidi Zin
+ */
+class BisectingItemWriter<T> implements ItemWriter<T> {
+
+    private final ItemWriter<T> delegate;
+    private final DataSource dataSource;
+    private final SkipPolicy skipPolicy;
+    private final SkipListener<?, ? super T> skipListener;
+    private final SkipCounter skips;
+
+    BisectingItemWriter(ItemWriter<T> delegate, DataSource dataSource, SkipPolicy skipPolicy, SkipListener<?, ? super T> skipListener,
+                        SkipCounter skips) {
+        this.delegate = delegate;
+        this.dataSource = dataSource;
+        this.skipPolicy = skipPolicy;
+        this.skipListener = skipListener;
+        this.skips = skips;
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        var connection = DataSourceUtils.getConnection(dataSource);
+
+        try {
+            write(chunk.getItems(), connection);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void write(List<? extends T> items, Connection connection) throws Exception {
+        var savepoint = connection.setSavepoint();
+
+        try {
+            delegate.write(new Chunk<>(items));
+            connection.releaseSavepoint(savepoint);
+        } catch (Exception e) {
+            connection.rollback(savepoint);
+
+            if (items.size() > 1) {
+                int middle = items.size() / 2;
+
+                write(items.subList(0, middle), connection);
+                write(items.subList(middle, items.size()), connection);
+            } else if (skipPolicy.shouldSkip(e, skips.count())) {
+                skips.writeSkipped();
+                skipListener.onSkipInWrite(items.getFirst(), e);
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Skips of the step that an isolated item is checked against, and where it is counted once it is skipped.
+     */
+    interface SkipCounter {
+
+        long count();
+
+        void writeSkipped();
+
+    }
+
+}
@@ -0,0 +1,215 @@
+package zin.rashidi.boot.batch.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.ItemProcessListener;
+import org.springframework.batch.core.listener.ItemReadListener;
+import org.springframework.batch.core.listener.ItemWriteListener;
+import org.springframework.batch.core.listener.SkipListener;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.Chunk;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Times every stage of a chunk and publishes it to a {@link MeterRegistry}, tagged with {@code job} and {@code step}:
+ * <ul>
+ *     <li>{@code batch.chunk.read}, {@code batch.chunk.process} and {@code batch.chunk.write} - time spent in the reader,
+ *     processor and writer for the chunk</li>
+ *     <li>{@code batch.chunk.commit} - from the end of the write until the next chunk starts reading, which covers the
+ *     transaction commit and the {@link org.springframework.batch.core.repository.JobRepository} update</li>
+ *     <li>{@code batch.chunk} - the whole chunk, and {@code batch.chunk.throughput} its written items per second</li>
+ *     <li>{@code batch.chunk.items}, {@code batch.chunk.skips} by {@code stage} and {@code batch.chunk.rollbacks}</li>
+ * </ul>
+ * Timings are kept per thread, so the same listener can be shared by steps that run concurrently.
+ * <p>
+ * Every module of this repository builds on its own, so this class is copied into each batch module that uses it. The copies
+ * are kept identical apart from their package.
+ *
+ * @author Rashidi Zin
+ */
+class ChunkMetricsListener<I, O> implements ChunkListener<I, O>, ItemReadListener<I>, ItemProcessListener<I, O>,
+        ItemWriteListener<O>, SkipListener<I, O>, StepExecutionListener {
+
+    private final ThreadLocal<Stages> stages = ThreadLocal.withInitial(Stages::new);
+
+    private final Timer read;
+    private final Timer process;
+    private final Timer write;
+    private final Timer commit;
+    private final Timer chunk;
+    private final DistributionSummary throughput;
+    private final Counter items;
+    private final Counter readSkips;
+    private final Counter processSkips;
+    private final Counter writeSkips;
+    private final Counter rollbacks;
+
+    ChunkMetricsListener(MeterRegistry registry, String job, String step) {
+        var tags = Tags.of("job", job, "step", step);
+
+        this.read = registry.timer("batch.chunk.read", tags);
+        this.process = registry.timer("batch.chunk.process", tags);
+        this.write = registry.timer("batch.chunk.write", tags);
+        this.commit = registry.timer("batch.chunk.commit", tags);
+        this.chunk = registry.timer("batch.chunk", tags);
+        this.throughput = DistributionSummary.builder("batch.chunk.throughput").baseUnit("items/s").tags(tags).register(registry);
+        this.items = registry.counter("batch.chunk.items", tags);
+        this.readSkips = registry.counter("batch.chunk.skips", tags.and("stage", "read"));
+        this.processSkips = registry.counter("batch.chunk.skips", tags.and("stage", "process"));
+        this.writeSkips = registry.counter("batch.chunk.skips", tags.and("stage", "write"));
+        this.rollbacks = registry.counter("batch.chunk.rollbacks", tags);
+    }
+
+    @Override
+    public void beforeRead() {
+        var current = stages.get();
+        long now = System.nanoTime();
+
+        if (current.ended > 0) {
+            complete(current, now);
+        }
+
+        if (current.started == 0) {
+            current.started = now;
+        }
+
+        current.mark = now;
+    }
+
+    @Override
+    public void afterRead(I item) {
+        stages.get().read();
+    }
+
+    @Override
+    public void onReadError(Exception ex) {
+        stages.get().read();
+    }
+
+    @Override
+    public void beforeProcess(I item) {
+        stages.get().mark = System.nanoTime();
+    }
+
+    @Override
+    public void afterProcess(I item, O result) {
+        stages.get().process();
+    }
+
+    @Override
+    public void onProcessError(I item, Exception e) {
+        stages.get().process();
+    }
+
+    @Override
+    public void beforeWrite(Chunk<? extends O> items) {
+        stages.get().mark = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(Chunk<? extends O> items) {
+        var current = stages.get();
+
+        current.write();
+        current.items += items.size();
+    }
+
+    @Override
+    public void onWriteError(Exception exception, Chunk<? extends O> items) {
+        stages.get().write();
+    }
+
+    @Override
+    public void afterChunk(Chunk<O> chunk) {
+        stages.get().ended = System.nanoTime();
+    }
+
+    @Override
+    public void onChunkError(Exception exception, Chunk<O> chunk) {
+        rollbacks.increment();
+        stages.remove();
+    }
+
+    @Override
+    public void onSkipInRead(Throwable t) {
+        readSkips.increment();
+    }
+
+    @Override
+    public void onSkipInProcess(I item, Throwable t) {
+        processSkips.increment();
+    }
+
+    @Override
+    public void onSkipInWrite(O item, Throwable t) {
+        writeSkips.increment();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        var current = stages.get();
+
+        if (current.ended > 0) {
+            complete(current, System.nanoTime());
+        }
+
+        stages.remove();
+
+        return stepExecution.getExitStatus();
+    }
+
+    private void complete(Stages current, long now) {
+        long elapsed = now - current.started;
+
+        read.record(current.read, NANOSECONDS);
+        process.record(current.process, NANOSECONDS);
+        write.record(current.write, NANOSECONDS);
+        commit.record(now - current.ended, NANOSECONDS);
+        chunk.record(elapsed, NANOSECONDS);
+        items.increment(current.items);
+        throughput.record(current.items * 1e9 / Math.max(1, elapsed));
+
+        current.reset();
+    }
+
+    private static class Stages {
+
+        private long started;
+        private long mark;
+        private long read;
+        private long process;
+        private long write;
+        private long ended;
+        private int items;
+
+        void read() {
+            read += System.nanoTime() - mark;
+        }
+
+        void process() {
+            process += System.nanoTime() - mark;
+        }
+
+        void write() {
+            write += System.nanoTime() - mark;
+        }
+
+        void reset() {
+            started = 0;
+            read = 0;
+            process = 0;
+            write = 0;
+            ended = 0;
+            items = 0;
+        }
+
+    }
+
+}
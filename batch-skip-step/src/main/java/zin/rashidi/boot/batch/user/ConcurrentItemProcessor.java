@@ -0,0 +1,73 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Processes every item of a chunk through {@code delegate} on {@code executor} as soon as the chunk has been read, instead
+ * of one after another on the chunk thread. The step still asks for the items in order and receives each result, or the
+ * exception that {@code delegate} threw for it, from its {@link Future}, so the writer sees the original order and a
+ * skippable exception is skipped for the very item that raised it.
+ * <p>
+ * Items that were not submitted up front, such as those reprocessed after a rollback, are processed inline.
+ *
+ * @author Rashidi Zin
+ */
+class ConcurrentItemProcessor<I, O> implements ItemProcessor<I, O>, ChunkListener<I, O> {
+
+    private final ItemProcessor<I, O> delegate;
+    private final AsyncTaskExecutor executor;
+    private final Map<I, Future<O>> results = new IdentityHashMap<>();
+
+    ConcurrentItemProcessor(ItemProcessor<I, O> delegate, AsyncTaskExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void beforeChunk(Chunk<I> chunk) {
+        for (I item : chunk) {
+            if (!results.containsKey(item)) {
+                results.put(item, executor.submit(() -> delegate.process(item)));
+            }
+        }
+    }
+
+    @Override
+    public O process(I item) throws Exception {
+        var result = results.remove(item);
+
+        if (result == null) {
+            return delegate.process(item);
+        }
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    @Override
+    public void afterChunk(Chunk<O> chunk) {
+        discard();
+    }
+
+    @Override
+    public void onChunkError(Exception exception, Chunk<O> chunk) {
+        discard();
+    }
+
+    private void discard() {
+        results.values().forEach(result -> result.cancel(true));
+        results.clear();
+    }
+
+}
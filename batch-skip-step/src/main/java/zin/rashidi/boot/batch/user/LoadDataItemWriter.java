@@ -0,0 +1,105 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stages a chunk as tab separated values in memory and streams it to MySQL with {@code LOAD DATA LOCAL INFILE}, which
+ * skips statement parsing for every row. The connection needs {@code allowLoadLocalInfile=true}, which
+ * {@code application.properties} sets for the connection pool, and the server {@code local_infile} enabled.
+ * <p>
+ * MySQL ignores duplicate keys for {@code LOCAL} loads, so a chunk that loads fewer rows than it holds fails with a
+ * {@link DuplicateKeyException}, leaving it to skip isolation to find the offending items.
+ *
+ * @author Rashidi Zin
+ */
+class LoadDataItemWriter<T> implements ItemWriter<T> {
+
+    private final JdbcTemplate jdbc;
+    private final String load;
+    private final Function<T, Object[]> values;
+
+    LoadDataItemWriter(JdbcTemplate jdbc, String table, List<String> columns, Function<T, Object[]> values) {
+        this.jdbc = jdbc;
+        this.load = "LOAD DATA LOCAL INFILE 'chunk.tsv' INTO TABLE %s CHARACTER SET utf8mb4 (%s)".formatted(table, String.join(", ", columns));
+        this.values = values;
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) {
+        var tsv = new StringBuilder();
+
+        for (T item : chunk) {
+            append(tsv, values.apply(item));
+        }
+
+        var content = tsv.toString().getBytes(UTF_8);
+
+        Integer loaded = jdbc.execute((Statement statement) -> {
+            setLocalInfileInputStream(statement.unwrap(Statement.class), new ByteArrayInputStream(content));
+
+            return statement.executeUpdate(load);
+        });
+
+        if (loaded < chunk.size()) {
+            throw new DuplicateKeyException("Loaded %d of %d rows into %s".formatted(loaded, chunk.size(), load));
+        }
+    }
+
+    /**
+     * Calls Connector/J's {@code JdbcStatement#setLocalInfileInputStream} reflectively, so that the driver is only needed at
+     * runtime.
+     */
+    private static void setLocalInfileInputStream(Statement statement, InputStream content) {
+        var method = ReflectionUtils.findMethod(statement.getClass(), "setLocalInfileInputStream", InputStream.class);
+
+        if (method == null) {
+            throw new InvalidDataAccessApiUsageException("%s does not support LOAD DATA LOCAL INFILE from a stream".formatted(statement.getClass().getName()));
+        }
+
+        ReflectionUtils.invokeMethod(method, statement, content);
+    }
+
+    private static void append(StringBuilder tsv, Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                tsv.append('\t');
+            }
+
+            if (row[i] == null) {
+                tsv.append("\\N");
+            } else {
+                escape(tsv, row[i].toString());
+            }
+        }
+
+        tsv.append('\n');
+    }
+
+    private static void escape(StringBuilder tsv, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '\\' -> tsv.append("\\\\");
+                case '\t' -> tsv.append("\\t");
+                case '\n' -> tsv.append("\\n");
+                case '\r' -> tsv.append("\\r");
+                default -> tsv.append(c);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Inserts a chunk with as few {@code INSERT ... VALUES (...), (...)} statements as possible, instead of one statement per
+ * item. A statement grows until its estimated size reaches the server's {@code max_allowed_packet} or it holds
+ * {@value #MAX_PLACEHOLDERS} placeholders, whichever comes first.
+ * <p>
+ * The estimate assumes every character of a value takes three bytes and is escaped, so a statement stays within the
+ * packet once the driver inlines its values.
+ *
+ * @author Rashidi Zin
+ */
+class MultiRowInsertItemWriter<T> implements ItemWriter<T> {
+
+    static final int MAX_PLACEHOLDERS = 65_535;
+
+    private static final int ROW_OVERHEAD = 8;
+    private static final int VALUE_OVERHEAD = 4;
+
+    private final JdbcTemplate jdbc;
+    private final String insert;
+    private final String row;
+    private final int columns;
+    private final Function<T, Object[]> values;
+
+    private long maxAllowedPacket;
+
+    MultiRowInsertItemWriter(JdbcTemplate jdbc, String table, List<String> columns, Function<T, Object[]> values) {
+        this.jdbc = jdbc;
+        this.insert = "INSERT INTO %s (%s) VALUES ".formatted(table, String.join(", ", columns));
+        this.row = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        this.columns = columns.size();
+        this.values = values;
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) {
+        long limit = maxAllowedPacket();
+        List<Object> parameters = new ArrayList<>();
+        int rows = 0;
+        long size = insert.length();
+
+        for (T item : chunk) {
+            var rowValues = values.apply(item);
+            long rowSize = estimate(rowValues);
+
+            if (rows > 0 && (size + rowSize > limit || (rows + 1) * columns > MAX_PLACEHOLDERS)) {
+                insert(rows, parameters);
+                parameters.clear();
+                rows = 0;
+                size = insert.length();
+            }
+
+            Collections.addAll(parameters, rowValues);
+            rows++;
+            size += rowSize;
+        }
+
+        if (rows > 0) {
+            insert(rows, parameters);
+        }
+    }
+
+    private void insert(int rows, List<Object> parameters) {
+        jdbc.update(insert + String.join(", ", Collections.nCopies(rows, row)), parameters.toArray());
+    }
+
+    private long maxAllowedPacket() {
+        if (maxAllowedPacket == 0) {
+            maxAllowedPacket = jdbc.queryForObject("SELECT @@max_allowed_packet", Long.class);
+        }
+
+        return maxAllowedPacket;
+    }
+
+    private static long estimate(Object[] row) {
+        long size = ROW_OVERHEAD;
+
+        for (Object value : row) {
+            size += VALUE_OVERHEAD + (value == null ? 4 : 6L * value.toString().length());
+        }
+
+        return size;
+    }
+
+}
@@ -0,0 +1,130 @@
+package zin.rashidi.boot.batch.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.SkipListener;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Dead-letter sink for users skipped by {@code userStep}. Every skip is buffered together with the exception that caused it
+ * and written to {@code users_rejected} in JDBC batches of {@code batchSize} rows once the chunk is done, so a chunk with
+ * skips costs one extra round-trip per batch rather than one per user. Rejections still buffered when the step ends are
+ * written by {@link #afterStep(StepExecution)}, while those of a chunk that fails are discarded.
+ * <p>
+ * Skips are also counted in {@code batch.chunk.rejects}, tagged with {@code job}, {@code step}, {@code stage} and the simple
+ * name of the exception as {@code reason}, which gives the skip rate per type of exception.
+ *
+ * @author Rashidi Zin
+ */
+class RejectedUserSink implements SkipListener<UserFile, User>, ChunkListener<UserFile, User>, StepExecutionListener {
+
+    private static final String INSERT = """
+            INSERT INTO users_rejected (job_execution_id, stage, reason, message, id, name, username)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final Queue<Rejection> rejections = new ConcurrentLinkedQueue<>();
+
+    private final JdbcTemplate jdbc;
+    private final MeterRegistry registry;
+    private final int batchSize;
+
+    private volatile StepExecution stepExecution;
+
+    RejectedUserSink(JdbcTemplate jdbc, MeterRegistry registry, int batchSize) {
+        this.jdbc = jdbc;
+        this.registry = registry;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+    }
+
+    @Override
+    public void onSkipInRead(Throwable t) {
+        reject("read", t, null, null, null);
+    }
+
+    @Override
+    public void onSkipInProcess(UserFile item, Throwable t) {
+        reject("process", t, item.id(), item.name(), item.username());
+    }
+
+    @Override
+    public void onSkipInWrite(User item, Throwable t) {
+        reject("write", t, item.id(), item.name(), item.username());
+    }
+
+    @Override
+    public void afterChunk(Chunk<User> chunk) {
+        flush();
+    }
+
+    /**
+     * Discards the rejections of a chunk that was rolled back, as its users are read again when the step is restarted.
+     */
+    @Override
+    public void onChunkError(Exception exception, Chunk<User> chunk) {
+        rejections.clear();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        flush();
+
+        return stepExecution.getExitStatus();
+    }
+
+    private void reject(String stage, Throwable cause, Long id, String name, String username) {
+        var reason = cause.getClass().getSimpleName();
+
+        rejections.add(new Rejection(stage, reason, cause.getMessage(), id, name, username));
+
+        registry.counter("batch.chunk.rejects", Tags.of(
+                "job", stepExecution.getJobExecution().getJobInstance().getJobName(),
+                "step", stepExecution.getStepName(),
+                "stage", stage,
+                "reason", reason
+        )).increment();
+    }
+
+    private void flush() {
+        List<Rejection> pending = new ArrayList<>();
+
+        for (var rejection = rejections.poll(); rejection != null; rejection = rejections.poll()) {
+            pending.add(rejection);
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long jobExecutionId = stepExecution.getJobExecutionId();
+
+        jdbc.batchUpdate(INSERT, pending, batchSize, (ps, rejection) -> {
+            ps.setLong(1, jobExecutionId);
+            ps.setString(2, rejection.stage());
+            ps.setString(3, rejection.reason());
+            ps.setString(4, rejection.message());
+            ps.setObject(5, rejection.id());
+            ps.setString(6, rejection.name());
+            ps.setString(7, rejection.username());
+        });
+    }
+
+    private record Rejection(String stage, String reason, String message, Long id, String name, String username) {
+    }
+
+}
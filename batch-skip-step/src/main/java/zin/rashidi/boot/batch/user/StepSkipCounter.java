@@ -0,0 +1,91 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.SkipListener;
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Counts the skips of {@code userStep} for {@link BisectingItemWriter}. The skips of a chunk only reach the
+ * {@link StepExecution} once the chunk is committed, so the read and process skips of the chunk in progress are counted on top
+ * of those of the {@link StepExecution}.
+ * <p>
+ * Write skips found by bisection are added to {@link StepExecution#getWriteSkipCount()}, and taken off
+ * {@link StepExecution#getWriteCount()}, once their chunk is committed. A chunk that is rolled back leaves both untouched.
+ *
+ * @author Rashidi Zin
+ */
+class StepSkipCounter<I, O> implements BisectingItemWriter.SkipCounter, SkipListener<I, O>, ChunkListener<I, O>, StepExecutionListener {
+
+    private StepExecution stepExecution;
+    private int chunkSkips;
+    private int writeSkips;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.stepExecution = stepExecution;
+        reset();
+    }
+
+    @Override
+    public void onSkipInRead(Throwable t) {
+        chunkSkips++;
+    }
+
+    @Override
+    public void onSkipInProcess(I item, Throwable t) {
+        chunkSkips++;
+    }
+
+    @Override
+    public long count() {
+        return stepExecution.getSkipCount() + chunkSkips + writeSkips;
+    }
+
+    @Override
+    public void writeSkipped() {
+        writeSkips++;
+    }
+
+    @Override
+    public void afterChunk(Chunk<O> chunk) {
+        int skipped = writeSkips;
+        var execution = stepExecution;
+
+        if (skipped > 0) {
+            Runnable apply = () -> {
+                execution.setWriteSkipCount(execution.getWriteSkipCount() + skipped);
+                execution.setWriteCount(execution.getWriteCount() - skipped);
+            };
+
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                    @Override
+                    public void afterCommit() {
+                        apply.run();
+                    }
+
+                });
+            } else {
+                apply.run();
+            }
+        }
+
+        reset();
+    }
+
+    @Override
+    public void onChunkError(Exception exception, Chunk<O> chunk) {
+        reset();
+    }
+
+    private void reset() {
+        chunkSkips = 0;
+        writeSkips = 0;
+    }
+
+}
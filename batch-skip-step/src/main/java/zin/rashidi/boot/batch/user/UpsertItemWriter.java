@@ -0,0 +1,132 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ExecutionContext;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.batch.infrastructure.support.DatabaseType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts new users and updates existing ones in place, through {@code INSERT ... ON DUPLICATE KEY UPDATE} on MySQL and
+ * {@code INSERT ... ON CONFLICT} on PostgreSQL, so that a chunk can be written again without failing on duplicate keys.
+ * <p>
+ * The users of a chunk that already exist are read by their ids first. Users that are unchanged are not written at all, and
+ * how many users were inserted, updated or left unchanged is added to the step's {@link ExecutionContext} under
+ * {@code userWriter.inserted}, {@code userWriter.updated} and {@code userWriter.unchanged} once the chunk is committed, so a
+ * chunk that is rolled back and written again is only counted once. Counting does not rely on the affected rows reported by
+ * the driver, so the connection needs no particular setting.
+ *
+ * @author Rashidi Zin
+ */
+class UpsertItemWriter implements ItemWriter<User> {
+
+    static final String INSERTED = "userWriter.inserted";
+    static final String UPDATED = "userWriter.updated";
+    static final String UNCHANGED = "userWriter.unchanged";
+
+    private static final String SELECT_EXISTING = "SELECT id, name, username FROM users WHERE id IN (:ids)";
+
+    private static final String MYSQL_UPSERT = """
+            INSERT INTO users (id, name, username) VALUES (?, ?, ?) AS new
+            ON DUPLICATE KEY UPDATE name = new.name, username = new.username""";
+
+    private static final String POSTGRES_UPSERT = """
+            INSERT INTO users (id, name, username) VALUES (?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, username = EXCLUDED.username""";
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final String upsert;
+    private final ExecutionContext executionContext;
+
+    UpsertItemWriter(JdbcTemplate jdbc, DatabaseType databaseType, ExecutionContext executionContext) {
+        this.jdbc = jdbc;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        this.upsert = switch (databaseType) {
+            case MYSQL -> MYSQL_UPSERT;
+            case POSTGRES -> POSTGRES_UPSERT;
+            default -> throw new IllegalStateException("Upserts are not supported on " + databaseType);
+        };
+        this.executionContext = executionContext;
+    }
+
+    @Override
+    public void write(Chunk<? extends User> chunk) {
+        List<? extends User> users = chunk.getItems();
+        Map<Long, User> existing = existing(users);
+        List<User> changed = new ArrayList<>(users.size());
+
+        long inserted = 0;
+        long updated = 0;
+        long unchanged = 0;
+
+        for (User user : users) {
+            var previous = existing.put(user.id(), user);
+
+            if (previous == null) {
+                inserted++;
+                changed.add(user);
+            } else if (previous.equals(user)) {
+                unchanged++;
+            } else {
+                updated++;
+                changed.add(user);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            jdbc.batchUpdate(upsert, changed, changed.size(), (ps, user) -> {
+                ps.setLong(1, user.id());
+                ps.setString(2, user.name());
+                ps.setString(3, user.username());
+            });
+        }
+
+        count(inserted, updated, unchanged);
+    }
+
+    private Map<Long, User> existing(List<? extends User> users) {
+        Map<Long, User> existing = new HashMap<>();
+
+        if (!users.isEmpty()) {
+            namedJdbc.query(SELECT_EXISTING, Map.of("ids", users.stream().map(User::id).toList()), (RowCallbackHandler) rs -> {
+                var user = new User(rs.getLong("id"), rs.getString("name"), rs.getString("username"));
+
+                existing.put(user.id(), user);
+            });
+        }
+
+        return existing;
+    }
+
+    private void count(long inserted, long updated, long unchanged) {
+        Runnable apply = () -> {
+            executionContext.putLong(INSERTED, executionContext.getLong(INSERTED, 0L) + inserted);
+            executionContext.putLong(UPDATED, executionContext.getLong(UPDATED, 0L) + updated);
+            executionContext.putLong(UNCHANGED, executionContext.getLong(UNCHANGED, 0L) + unchanged);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+}
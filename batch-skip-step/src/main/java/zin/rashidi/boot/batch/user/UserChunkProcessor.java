@@ -0,0 +1,154 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepContribution;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.batch.core.step.item.ChunkProcessor;
+import org.springframework.batch.core.step.skip.SkipPolicy;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemWriter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * Processes and writes a chunk of {@link UserFile} records sent by a remote chunking manager, within a transaction of its
+ * own. Failures that {@code skipPolicy} allows are counted as skips and reported to {@code rejectedUsers} instead of failing
+ * the chunk, so the worker skips the same users as a local {@code userStep}. A chunk that fails to be written is scanned
+ * like in {@code userStep}, by writing its users again one per transaction.
+ * <p>
+ * A worker is not part of the step, so {@code listeners} are called with the {@link StepExecution} of the first chunk of
+ * every execution. The writer is created by {@code writers} for every chunk, so that users skipped by a
+ * {@link BisectingItemWriter} are counted as write skips of that chunk's {@link StepContribution}.
+ *
+ * @author Rashidi Zin
+ */
+class UserChunkProcessor implements ChunkProcessor<UserFile> {
+
+    private final ItemProcessor<UserFile, User> processor;
+    private final BiFunction<StepExecution, BisectingItemWriter.SkipCounter, ItemWriter<User>> writers;
+    private final SkipPolicy skipPolicy;
+    private final RejectedUserSink rejectedUsers;
+    private final List<StepExecutionListener> listeners;
+    private final TransactionTemplate transactionTemplate;
+
+    private Long stepExecutionId;
+
+    UserChunkProcessor(ItemProcessor<UserFile, User> processor, BiFunction<StepExecution, BisectingItemWriter.SkipCounter, ItemWriter<User>> writers,
+                       SkipPolicy skipPolicy, RejectedUserSink rejectedUsers, List<StepExecutionListener> listeners,
+                       TransactionTemplate transactionTemplate) {
+        this.processor = processor;
+        this.writers = writers;
+        this.skipPolicy = skipPolicy;
+        this.rejectedUsers = rejectedUsers;
+        this.listeners = listeners;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void process(StepContribution contribution, Chunk<UserFile> chunk) throws Exception {
+        beforeStep(contribution.getStepExecution());
+
+        var writer = writers.apply(contribution.getStepExecution(), skips(contribution));
+        var users = new Chunk<User>();
+
+        try {
+            for (var item : chunk) {
+                try {
+                    var user = processor.process(item);
+
+                    if (user == null) {
+                        contribution.incrementFilterCount(1);
+                    } else {
+                        users.add(user);
+                    }
+                } catch (Exception e) {
+                    skip(e, contribution);
+                    contribution.incrementProcessSkipCount();
+                    rejectedUsers.onSkipInProcess(item, e);
+                }
+            }
+
+            long writeSkips = contribution.getWriteSkipCount();
+
+            try {
+                transactionTemplate.executeWithoutResult(_ -> {
+                    write(writer, users);
+                    rejectedUsers.afterChunk(users);
+                });
+            } catch (Exception e) {
+                skip(e, contribution);
+                scan(contribution, writer, users);
+            }
+
+            contribution.incrementWriteCount(users.size() - (contribution.getWriteSkipCount() - writeSkips));
+        } catch (Exception e) {
+            rejectedUsers.onChunkError(e, users);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the users of a chunk that failed one per transaction, skipping those that fail again.
+     */
+    private void scan(StepContribution contribution, ItemWriter<User> writer, Chunk<User> users) throws Exception {
+        for (var user : users) {
+            try {
+                transactionTemplate.executeWithoutResult(_ -> write(writer, new Chunk<>(user)));
+            } catch (Exception e) {
+                skip(e, contribution);
+                contribution.incrementWriteSkipCount();
+                rejectedUsers.onSkipInWrite(user, e);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(_ -> rejectedUsers.afterChunk(users));
+    }
+
+    /**
+     * Rethrows {@code e} unless {@code skipPolicy} allows another skip for the step.
+     */
+    private void skip(Exception e, StepContribution contribution) throws Exception {
+        if (!skipPolicy.shouldSkip(e, contribution.getStepSkipCount())) {
+            throw e;
+        }
+    }
+
+    private static void write(ItemWriter<User> writer, Chunk<User> users) {
+        try {
+            writer.write(users);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to write users", e);
+        }
+    }
+
+    private synchronized void beforeStep(StepExecution stepExecution) {
+        if (!Objects.equals(stepExecutionId, stepExecution.getId())) {
+            listeners.forEach(listener -> listener.beforeStep(stepExecution));
+
+            stepExecutionId = stepExecution.getId();
+        }
+    }
+
+    private static BisectingItemWriter.SkipCounter skips(StepContribution contribution) {
+        return new BisectingItemWriter.SkipCounter() {
+
+            @Override
+            public long count() {
+                return contribution.getStepSkipCount();
+            }
+
+            @Override
+            public void writeSkipped() {
+                contribution.incrementWriteSkipCount();
+            }
+
+        };
+    }
+
+}
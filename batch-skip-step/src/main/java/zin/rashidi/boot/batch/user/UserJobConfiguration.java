@@ -1,24 +1,59 @@
 package zin.rashidi.boot.batch.user;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import tools.jackson.databind.DeserializationFeature;
 import tools.jackson.databind.json.JsonMapper;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.Job;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.listener.ChunkListener;
+import org.springframework.batch.core.listener.CompositeSkipListener;
+import org.springframework.batch.core.listener.ItemProcessListener;
+import org.springframework.batch.core.listener.ItemReadListener;
+import org.springframework.batch.core.listener.ItemWriteListener;
+import org.springframework.batch.core.listener.SkipListener;
+import org.springframework.batch.core.listener.StepExecutionListener;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.Step;
+import org.springframework.batch.core.step.StepExecution;
 import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.skip.LimitCheckingItemSkipPolicy;
+import org.springframework.batch.core.step.skip.SkipPolicy;
 import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.batch.infrastructure.item.ItemWriter;
 import org.springframework.batch.infrastructure.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.infrastructure.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.infrastructure.item.json.JacksonJsonObjectReader;
 import org.springframework.batch.infrastructure.item.json.JsonItemReader;
 import org.springframework.batch.infrastructure.item.json.builder.JsonItemReaderBuilder;
+import org.springframework.batch.infrastructure.support.DatabaseType;
+import org.springframework.batch.integration.chunk.ChunkMessageChannelItemWriter;
+import org.springframework.batch.integration.chunk.ChunkProcessorChunkRequestHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.integration.config.EnableIntegration;
+import org.springframework.integration.core.MessagingTemplate;
+import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.Pollers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.PollableChannel;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Rashidi Zin
@@ -30,6 +65,50 @@ class UserJobConfiguration {
             .disable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
             .build();
 
+    private static final List<String> USER_COLUMNS = List.of("id", "name", "username");
+
+    private final JobRepository jobRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final DataSource dataSource;
+    private final Resource usersResource;
+    private final int chunkSize;
+    private final int processConcurrency;
+    private final int blocklistExpectedSize;
+    private final double blocklistFalsePositiveRate;
+    private final ChunkMetricsListener<UserFile, User> metrics;
+    private final RejectedUserSink rejectedUsers;
+    private final StepSkipCounter<UserFile, User> skipCounter = new StepSkipCounter<>();
+    private final SkipPolicy skipPolicy;
+    private final SkipPolicy bisectSkipPolicy;
+
+    UserJobConfiguration(JobRepository jobRepository, PlatformTransactionManager transactionManager, DataSource dataSource,
+                         ObjectProvider<MeterRegistry> meterRegistry,
+                         @Value("${batch.users.resource:classpath:users.json}") Resource usersResource,
+                         @Value("${batch.users.chunk-size:10}") int chunkSize,
+                         @Value("${batch.users.skip-limit:1}") int skipLimit,
+                         @Value("${batch.users.process-concurrency:1}") int processConcurrency,
+                         @Value("${batch.users.blocklist.expected-size:100000}") int blocklistExpectedSize,
+                         @Value("${batch.users.blocklist.false-positive-rate:0.01}") double blocklistFalsePositiveRate,
+                         @Value("${batch.users.rejected.batch-size:1000}") int rejectedBatchSize) {
+        this.jobRepository = jobRepository;
+        this.transactionManager = transactionManager;
+        this.dataSource = dataSource;
+        this.usersResource = usersResource;
+        this.chunkSize = chunkSize;
+        this.skipPolicy = new LimitCheckingItemSkipPolicy(skipLimit, Map.of(UsernameNotAllowedException.class, true));
+        this.bisectSkipPolicy = new LimitCheckingItemSkipPolicy(skipLimit, Map.of(
+                UsernameNotAllowedException.class, true,
+                DataIntegrityViolationException.class, true
+        ));
+        this.processConcurrency = processConcurrency;
+        this.blocklistExpectedSize = blocklistExpectedSize;
+        this.blocklistFalsePositiveRate = blocklistFalsePositiveRate;
+        var registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+
+        this.metrics = new ChunkMetricsListener<>(registry, "userJob", "userStep");
+        this.rejectedUsers = new RejectedUserSink(new JdbcTemplate(dataSource), registry, rejectedBatchSize);
+    }
+
     private JsonItemReader<UserFile> reader() {
         JacksonJsonObjectReader<UserFile> reader = new JacksonJsonObjectReader<>(UserFile.class);
 
@@ -38,19 +117,52 @@ class UserJobConfiguration {
         return new JsonItemReaderBuilder<UserFile>()
                 .jsonObjectReader(reader)
                 .name("userReader")
-                .resource(new ClassPathResource("users.json"))
+                .resource(usersResource)
                 .build();
     }
 
     private ItemProcessor<UserFile, User> processor() {
-        return item -> switch (item.username()) {
-            case "Elwyn.Skiles" -> null;
-            case "Maxime_Nienow" -> throw new UsernameNotAllowedException(item.username());
-            default -> new User(item.id(), item.name(), item.username());
+        var blocklist = usernameBlocklist();
+
+        return item -> switch (blocklist.verdict(item.username())) {
+            case FILTERED -> null;
+            case BLOCKED -> throw new UsernameNotAllowedException(item.username());
+            case ALLOWED -> new User(item.id(), item.name(), item.username());
         };
     }
 
-    private JdbcBatchItemWriter<User> writer(DataSource dataSource) {
+    /**
+     * Usernames listed in {@code username_blocklist}, sized for {@code batch.users.blocklist.expected-size} entries with a
+     * false positive rate of {@code batch.users.blocklist.false-positive-rate}. Changes are picked up at the start of every
+     * step.
+     */
+    @Bean
+    UsernameBlocklist usernameBlocklist() {
+        var jdbc = new JdbcTemplate(dataSource);
+
+        jdbc.setFetchSize(Integer.MIN_VALUE);
+
+        return new UsernameBlocklist(jdbc, blocklistExpectedSize, blocklistFalsePositiveRate);
+    }
+
+    /**
+     * Processes the users of a chunk on up to {@code batch.users.process-concurrency} virtual threads at a time.
+     */
+    private ConcurrentItemProcessor<UserFile, User> concurrentProcessor() {
+        return new ConcurrentItemProcessor<>(processor(), processTaskExecutor());
+    }
+
+    @Bean
+    SimpleAsyncTaskExecutor processTaskExecutor() {
+        var executor = new SimpleAsyncTaskExecutor("user-process-");
+
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(processConcurrency);
+
+        return executor;
+    }
+
+    private JdbcBatchItemWriter<User> jdbcWriter() {
         return new JdbcBatchItemWriterBuilder<User>()
                 .dataSource(dataSource)
                 .itemPreparedStatementSetter((item, ps) -> {
@@ -62,26 +174,182 @@ class UserJobConfiguration {
                 .build();
     }
 
-    private Step step(JobRepository jobRepository, PlatformTransactionManager transactionManager, DataSource dataSource) {
+    /**
+     * Inserts users according to the {@code writeMode} job parameter: {@code batch}, the default, sends a JDBC batch of
+     * single row inserts, {@code multi-row} packs them into multi-row inserts and {@code load-data} streams them with
+     * {@code LOAD DATA LOCAL INFILE}. {@code upsert} updates users that already exist instead of failing on them.
+     */
+    private ItemWriter<User> insertWriter(String writeMode, StepExecution stepExecution) {
+        return switch (writeMode) {
+            case "batch" -> jdbcWriter();
+            case "multi-row" -> new MultiRowInsertItemWriter<>(new JdbcTemplate(dataSource), "users", USER_COLUMNS, UserJobConfiguration::values);
+            case "load-data" -> new LoadDataItemWriter<>(new JdbcTemplate(dataSource), "users", USER_COLUMNS, UserJobConfiguration::values);
+            case "upsert" -> new UpsertItemWriter(new JdbcTemplate(dataSource), databaseType(), stepExecution.getExecutionContext());
+            default -> throw new IllegalArgumentException("Unknown write mode " + writeMode);
+        };
+    }
+
+    private DatabaseType databaseType() {
+        try {
+            return DatabaseType.fromMetaData(dataSource);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Unable to detect the type of database for upserts", e);
+        }
+    }
+
+    private static Object[] values(User user) {
+        return new Object[] { user.id(), user.name(), user.username() };
+    }
+
+    /**
+     * Isolates users that cannot be written according to the {@code skipIsolation} job parameter. With {@code scan}, the
+     * default, the step rolls the chunk back and writes it again one user per transaction, and a user that violates a
+     * constraint, such as an {@code id} that already exists, still fails the job. With {@code bisect}, the chunk is split in
+     * halves within its transaction until the failing users are found, and those that violate a constraint are skipped.
+     */
+    @Bean
+    @StepScope
+    ItemWriter<User> writer(@Value("#{jobParameters['writeMode'] ?: 'batch'}") String writeMode,
+                            @Value("#{jobParameters['skipIsolation'] ?: 'scan'}") String skipIsolation,
+                            @Value("#{stepExecution}") StepExecution stepExecution) {
+        return writer(writeMode, skipIsolation, stepExecution, skipListener(), skipCounter);
+    }
+
+    private ItemWriter<User> writer(String writeMode, String skipIsolation, StepExecution stepExecution,
+                                    SkipListener<UserFile, User> skipListener, BisectingItemWriter.SkipCounter skips) {
+        var writer = insertWriter(writeMode, stepExecution);
+
+        return switch (skipIsolation) {
+            case "scan" -> writer;
+            case "bisect" -> new BisectingItemWriter<>(writer, dataSource, bisectSkipPolicy, skipListener, skips);
+            default -> throw new IllegalArgumentException("Unknown skip isolation " + skipIsolation);
+        };
+    }
+
+    private SkipListener<UserFile, User> skipListener() {
+        var listener = new CompositeSkipListener<UserFile, User>();
+
+        listener.register(metrics);
+        listener.register(rejectedUsers);
+
+        return listener;
+    }
+
+    private Step step(ItemWriter<User> writer) {
+        var processor = concurrentProcessor();
+
         return new StepBuilder("userStep", jobRepository)
-                .<UserFile, User>chunk(10)
+                .<UserFile, User>chunk(chunkSize)
                 .transactionManager(transactionManager)
                 .reader(reader())
-                .processor(processor())
-                .writer(writer(dataSource))
+                .processor(processor)
+                .writer(writer)
                 .faultTolerant()
-                .skip(UsernameNotAllowedException.class)
-                .skipLimit(1)
+                .skipPolicy(skipPolicy)
+                .listener(usernameBlocklist())
+                .listener((ChunkListener<UserFile, User>) processor)
+                .listener((ChunkListener<UserFile, User>) metrics)
+                .listener((ItemReadListener<UserFile>) metrics)
+                .listener((ItemProcessListener<UserFile, User>) metrics)
+                .listener((ItemWriteListener<User>) metrics)
+                .listener((SkipListener<UserFile, User>) metrics)
+                .listener((StepExecutionListener) metrics)
+                .listener((ChunkListener<UserFile, User>) rejectedUsers)
+                .listener((SkipListener<UserFile, User>) rejectedUsers)
+                .listener((StepExecutionListener) rejectedUsers)
+                .listener((ChunkListener<UserFile, User>) skipCounter)
+                .listener((SkipListener<UserFile, User>) skipCounter)
+                .listener((StepExecutionListener) skipCounter)
                 .build();
     }
 
+    /**
+     * Sends chunks read by the manager to {@code userChunkRequests} and waits for their replies on {@code userChunkReplies},
+     * with at most {@code batch.users.remote-chunking.throttle-limit} chunks in flight.
+     */
     @Bean
-    public Job job(JobRepository repository, PlatformTransactionManager transactionManager, DataSource dataSource) {
-        return new JobBuilder("userJob", repository)
-                .start(step(repository, transactionManager, dataSource))
+    @ConditionalOnProperty(name = "batch.users.remote-chunking", havingValue = "manager")
+    ChunkMessageChannelItemWriter<UserFile> chunkRequestWriter(@Qualifier("userChunkRequests") MessageChannel requests,
+                                                               @Qualifier("userChunkReplies") PollableChannel replies,
+                                                               @Value("${batch.users.remote-chunking.throttle-limit:4}") int throttleLimit) {
+        var template = new MessagingTemplate(requests);
+
+        template.setReceiveTimeout(1000);
+
+        var writer = new ChunkMessageChannelItemWriter<UserFile>();
+
+        writer.setMessagingOperations(template);
+        writer.setReplyChannel(replies);
+        writer.setThrottleLimit(throttleLimit);
+
+        return writer;
+    }
+
+    /**
+     * Only reads users and hands every chunk over to {@code chunkRequestWriter}, workers process and write them.
+     */
+    private Step managerStep(ChunkMessageChannelItemWriter<UserFile> chunkRequestWriter) {
+        return new StepBuilder("userStep", jobRepository)
+                .<UserFile, UserFile>chunk(chunkSize)
+                .transactionManager(transactionManager)
+                .reader(reader())
+                .writer(chunkRequestWriter)
                 .build();
     }
 
+    /**
+     * Processes and writes the chunks of a remote chunking manager the way {@code userStep} does, skipping users within the
+     * same {@code skipPolicy}. Write mode and skip isolation are taken from the job parameters of each execution.
+     */
+    private UserChunkProcessor workerChunkProcessor() {
+        var blocklist = usernameBlocklist();
+
+        return new UserChunkProcessor(processor(), (stepExecution, skips) -> writer(
+                stepExecution.getJobParameters().getString("writeMode", "batch"),
+                stepExecution.getJobParameters().getString("skipIsolation", "scan"),
+                stepExecution,
+                rejectedUsers,
+                skips
+        ), skipPolicy, rejectedUsers, List.of(blocklist, rejectedUsers), new TransactionTemplate(transactionManager));
+    }
+
+    @Bean
+    public Job job(ObjectProvider<ChunkMessageChannelItemWriter<UserFile>> chunkRequestWriter, ItemWriter<User> writer) {
+        var requests = chunkRequestWriter.getIfAvailable();
+
+        return new JobBuilder("userJob", jobRepository)
+                .start(requests == null ? step(writer) : managerStep(requests))
+                .build();
+    }
+
+    /**
+     * Polls {@code userChunkRequests} for chunks sent by the manager and replies on {@code userChunkReplies}. Every worker
+     * competes for the same requests, so a request is taken by one of them. A broker that redelivers a request whose reply
+     * was lost hands the chunk out again, so delivery is at least once and only the {@code upsert} write mode makes it safe
+     * to write a chunk twice.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @EnableIntegration
+    @ConditionalOnProperty(name = "batch.users.remote-chunking", havingValue = "worker")
+    static class WorkerConfiguration {
+
+        @Bean
+        IntegrationFlow userChunkWorker(UserJobConfiguration users,
+                                        @Qualifier("userChunkRequests") PollableChannel requests,
+                                        @Qualifier("userChunkReplies") MessageChannel replies) {
+            var handler = new ChunkProcessorChunkRequestHandler<UserFile>();
+
+            handler.setChunkProcessor(users.workerChunkProcessor());
+
+            return IntegrationFlow.from(requests)
+                    .bridge(endpoint -> endpoint.poller(Pollers.fixedDelay(Duration.ofMillis(10))))
+                    .handle(handler)
+                    .channel(replies)
+                    .get();
+        }
+
+    }
+
     static class UsernameNotAllowedException extends RuntimeException {
 
         public UsernameNotAllowedException(String username) {
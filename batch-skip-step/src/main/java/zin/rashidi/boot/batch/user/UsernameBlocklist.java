@@ -0,0 +1,162 @@
+package zin.rashidi.boot.batch.user;
+
+import org.springframework.batch.core.listener.StepExecutionListener;
+import org.springframework.batch.core.step.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the {@code username_blocklist} table that tells whether a username is {@link Verdict#ALLOWED allowed},
+ * {@link Verdict#BLOCKED blocked} or {@link Verdict#FILTERED filtered} without a query per user.
+ * <p>
+ * A Bloom filter answers for the vast majority of usernames that are not listed, and only usernames that it may contain
+ * are looked up in the exact map. The whole table is loaded before the first step; each following step only loads rows
+ * whose {@code updated_at} is not older than the latest one seen. Setting a row's verdict to {@code ALLOWED} removes the
+ * username from the list.
+ *
+ * @author Rashidi Zin
+ */
+class UsernameBlocklist implements StepExecutionListener {
+
+    enum Verdict {
+        ALLOWED, BLOCKED, FILTERED
+    }
+
+    private final JdbcTemplate jdbc;
+    private final double falsePositiveRate;
+    private final Map<String, Verdict> entries = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private int capacity;
+    private Timestamp refreshedUpTo = new Timestamp(0);
+
+    UsernameBlocklist(JdbcTemplate jdbc, int expectedEntries, double falsePositiveRate) {
+        this.jdbc = jdbc;
+        this.falsePositiveRate = falsePositiveRate;
+        this.capacity = expectedEntries;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        refresh();
+    }
+
+    synchronized void refresh() {
+        jdbc.query("SELECT username, verdict, updated_at FROM username_blocklist WHERE updated_at >= ? ORDER BY updated_at", rs -> {
+            apply(rs.getString("username"), Verdict.valueOf(rs.getString("verdict")));
+            refreshedUpTo = rs.getTimestamp("updated_at");
+        }, refreshedUpTo);
+    }
+
+    Verdict verdict(String username) {
+        return filter.mightContain(username) ? entries.getOrDefault(username, Verdict.ALLOWED) : Verdict.ALLOWED;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    synchronized void apply(String username, Verdict verdict) {
+        if (verdict == Verdict.ALLOWED) {
+            entries.remove(username);
+            return;
+        }
+
+        entries.put(username, verdict);
+
+        if (entries.size() > capacity) {
+            rebuild(capacity * 2);
+        } else {
+            filter.put(username);
+        }
+    }
+
+    /**
+     * Bloom filters cannot grow, so one that has outgrown its capacity is replaced with a larger one built from the exact
+     * entries, which also drops usernames that are no longer listed.
+     */
+    private void rebuild(int newCapacity) {
+        var rebuilt = new BloomFilter(newCapacity, falsePositiveRate);
+
+        entries.keySet().forEach(rebuilt::put);
+
+        capacity = newCapacity;
+        filter = rebuilt;
+    }
+
+    /**
+     * Sized for {@code expectedEntries} at {@code falsePositiveRate}, with bit positions derived from two halves of a 64-bit
+     * hash as described by Kirsch and Mitzenmacher.
+     */
+    static class BloomFilter {
+
+        private final long[] bits;
+        private final long size;
+        private final int hashes;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            long optimal = (long) Math.ceil(-Math.max(1, expectedEntries) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+            this.bits = new long[(int) Math.max(1, (optimal + 63) >>> 6)];
+            this.size = (long) bits.length << 6;
+            this.hashes = Math.max(1, (int) Math.round((double) size / Math.max(1, expectedEntries) * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        long sizeInBytes() {
+            return (long) bits.length * Long.BYTES;
+        }
+
+        /**
+         * FNV-1a over the characters of {@code value}, followed by the MurmurHash3 finalizer to spread its bits.
+         */
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+
+            return hash;
+        }
+
+    }
+
+}
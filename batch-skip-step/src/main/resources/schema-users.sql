@@ -0,0 +1,18 @@
+CREATE TABLE IF NOT EXISTS username_blocklist (
+    username VARCHAR(255) PRIMARY KEY,
+    verdict VARCHAR(16) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS users_rejected (
+    reject_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_execution_id BIGINT NOT NULL,
+    stage VARCHAR(16) NOT NULL,
+    reason VARCHAR(255) NOT NULL,
+    message text,
+    id BIGINT,
+    name text,
+    username text,
+    rejected_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    INDEX (job_execution_id, reason)
+);
@@ -0,0 +1,52 @@
+package zin.rashidi.boot.batch.user;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Measures elapsed time, bytes allocated by all threads and peak heap usage between {@link #start()} and
+ * {@link #stop(String, long)}.
+ * <p>
+ * Every module of this repository builds on its own, so this class is copied into each batch module that uses it. The copies
+ * are kept identical apart from their package.
+ *
+ * @author Rashidi Zin
+ */
+class BenchmarkReport {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final List<MemoryPoolMXBean> heap;
+    private final long startedAt;
+    private final long allocatedAtStart;
+
+    private BenchmarkReport() {
+        this.heap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+
+        System.gc();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        this.allocatedAtStart = THREADS.getTotalThreadAllocatedBytes();
+        this.startedAt = System.nanoTime();
+    }
+
+    static BenchmarkReport start() {
+        return new BenchmarkReport();
+    }
+
+    String stop(String name, long items) {
+        var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+        long allocated = THREADS.getTotalThreadAllocatedBytes() - allocatedAtStart;
+        long peakHeap = heap.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        double seconds = elapsed.toNanos() / 1e9;
+
+        return "%s: %,d items in %.2f s, %,.0f items/s, allocated %,d MB (%,.1f MB/s), peak heap %,d MB".formatted(
+                name, items, seconds, items / seconds, allocated >> 20, (allocated >> 20) / seconds, peakHeap >> 20);
+    }
+
+}
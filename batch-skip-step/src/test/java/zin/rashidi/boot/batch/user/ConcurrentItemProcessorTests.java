@@ -0,0 +1,103 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.infrastructure.item.Chunk;
+import org.springframework.batch.infrastructure.item.ItemProcessor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import zin.rashidi.boot.batch.user.UserJobConfiguration.UsernameNotAllowedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Rashidi Zin
+ */
+class ConcurrentItemProcessorTests {
+
+    private static final Duration LOOKUP = Duration.ofMillis(50);
+
+    private final ItemProcessor<UserFile, User> lookup = item -> {
+        Thread.sleep(LOOKUP);
+
+        if (item.username().equals("Maxime_Nienow")) {
+            throw new UsernameNotAllowedException(item.username());
+        }
+
+        return new User(item.id(), item.name(), item.username());
+    };
+
+    @Test
+    @DisplayName("Given a processor waits 50 ms per user When 40 users are processed with a concurrency of 1, 4 and 20 Then the chunk takes proportionally less time and keeps its order")
+    void scales() throws Exception {
+        var users = users(40);
+
+        var serial = process(users, 1);
+        var four = process(users, 4);
+        var twenty = process(users, 20);
+
+        assertThat(serial).isGreaterThanOrEqualTo(LOOKUP.multipliedBy(40));
+        assertThat(four).isLessThan(serial.dividedBy(3));
+        assertThat(twenty).isLessThan(four.dividedBy(3));
+    }
+
+    @Test
+    @DisplayName("Given Maxime_Nienow is processed on a virtual thread When the step asks for the user Then UsernameNotAllowedException is thrown for that user only")
+    void skippable() throws Exception {
+        var users = new ArrayList<>(users(3));
+
+        users.add(1, new UserFile(8L, "Nicholas Runolfsdottir V", "Maxime_Nienow"));
+
+        try (var executor = executor(4)) {
+            var processor = new ConcurrentItemProcessor<>(lookup, executor);
+
+            processor.beforeChunk(new Chunk<>(users));
+
+            assertThat(processor.process(users.get(0))).extracting(User::id).isEqualTo(1L);
+            assertThatThrownBy(() -> processor.process(users.get(1))).isInstanceOf(UsernameNotAllowedException.class);
+            assertThat(processor.process(users.get(2))).extracting(User::id).isEqualTo(2L);
+            assertThat(processor.process(users.get(3))).extracting(User::id).isEqualTo(3L);
+        }
+    }
+
+    private Duration process(List<UserFile> users, int concurrency) throws Exception {
+        try (var executor = executor(concurrency)) {
+            var processor = new ConcurrentItemProcessor<>(lookup, executor);
+            long startedAt = System.nanoTime();
+            List<User> processed = new ArrayList<>();
+
+            processor.beforeChunk(new Chunk<>(users));
+
+            for (var user : users) {
+                processed.add(processor.process(user));
+            }
+
+            processor.afterChunk(new Chunk<>(processed));
+
+            assertThat(processed).extracting(User::id).containsExactlyElementsOf(users.stream().map(UserFile::id).toList());
+
+            return Duration.ofNanos(System.nanoTime() - startedAt);
+        }
+    }
+
+    private static SimpleAsyncTaskExecutor executor(int concurrency) {
+        var executor = new SimpleAsyncTaskExecutor("user-process-");
+
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrency);
+
+        return executor;
+    }
+
+    private static List<UserFile> users(int total) {
+        return LongStream.rangeClosed(1, total)
+                .mapToObj(id -> new UserFile(id, "User " + id, "user." + id))
+                .toList();
+    }
+
+}
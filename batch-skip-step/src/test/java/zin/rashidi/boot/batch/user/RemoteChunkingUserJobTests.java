@@ -0,0 +1,180 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
+import org.springframework.batch.core.job.Job;
+import org.springframework.batch.core.job.parameters.JobParameters;
+import org.springframework.batch.core.job.parameters.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobOperator;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+
+/**
+ * Runs {@code userJob} with one manager and two worker application contexts. The contexts share a parent that holds the
+ * request and reply channels, which stands in for the broker that connects separate JVMs.
+ *
+ * @author Rashidi Zin
+ */
+@Testcontainers
+class RemoteChunkingUserJobTests {
+
+    @Container
+    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts");
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    private ConfigurableApplicationContext manager;
+
+    @BeforeEach
+    void start() {
+        var dataSource = dataSource();
+        var jdbc = new JdbcTemplate(dataSource);
+
+        jdbc.execute("DROP TABLE IF EXISTS users");
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name text, username text)");
+        jdbc.execute("DROP TABLE IF EXISTS users_rejected");
+        jdbc.execute("DROP TABLE IF EXISTS username_blocklist");
+
+        new ResourceDatabasePopulator(
+                new ClassPathResource("org/springframework/batch/core/schema-drop-mysql.sql"),
+                new ClassPathResource("org/springframework/batch/core/schema-mysql.sql"),
+                new ClassPathResource("schema-users.sql")
+        ).execute(dataSource);
+
+        jdbc.execute("INSERT INTO username_blocklist (username, verdict) VALUES ('Elwyn.Skiles', 'FILTERED'), ('Maxime_Nienow', 'BLOCKED')");
+
+        var transport = new SpringApplicationBuilder(TransportConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run();
+
+        contexts.add(transport);
+        contexts.add(child(transport, "worker"));
+        contexts.add(child(transport, "worker"));
+
+        manager = child(transport, "manager");
+        contexts.add(manager);
+    }
+
+    @AfterEach
+    void stop() {
+        contexts.reversed().forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Given one manager and two workers, When job is executed in chunks of 2 users, Then every allowed user is inserted and Maxime_Nienow is rejected")
+    void remoteChunking() throws Exception {
+        var execution = manager.getBean(JobOperator.class).start(manager.getBean(Job.class), new JobParameters());
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+        assertThat(execution.getStepExecutions()).singleElement().satisfies(step -> {
+            assertThat(step.getReadCount()).isEqualTo(10);
+            assertThat(step.getWriteCount()).isEqualTo(8);
+            assertThat(step.getFilterCount()).isEqualTo(1);
+            assertThat(step.getProcessSkipCount()).isEqualTo(1);
+        });
+
+        var jdbc = new JdbcTemplate(dataSource());
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(8);
+        assertThat(jdbc.queryForList("SELECT id FROM users", Long.class)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 9L, 10L);
+        assertThat(jdbc.queryForList("SELECT username FROM users_rejected", String.class)).containsExactly("Maxime_Nienow");
+    }
+
+    @Test
+    @DisplayName("Given user 3 already exists, When job is executed by two workers with bisect skip isolation, Then user 3 is skipped in write and the other users are inserted")
+    void bisect() throws Exception {
+        var jdbc = new JdbcTemplate(dataSource());
+
+        jdbc.update("INSERT INTO users (id, name, username) VALUES (3, 'Clementine Bauch', 'Samantha')");
+
+        var parameters = new JobParametersBuilder().addString("skipIsolation", "bisect").toJobParameters();
+        var execution = manager.getBean(JobOperator.class).start(manager.getBean(Job.class), parameters);
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+        assertThat(execution.getStepExecutions()).singleElement().satisfies(step -> {
+            assertThat(step.getWriteCount()).isEqualTo(7);
+            assertThat(step.getWriteSkipCount()).isEqualTo(1);
+            assertThat(step.getProcessSkipCount()).isEqualTo(1);
+        });
+
+        assertThat(jdbc.queryForList("SELECT id FROM users", Long.class)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 9L, 10L);
+        assertThat(jdbc.queryForList("SELECT username FROM users_rejected ORDER BY id", String.class)).containsExactly("Samantha", "Maxime_Nienow");
+    }
+
+    private static ConfigurableApplicationContext child(ConfigurableApplicationContext parent, String role) {
+        return new SpringApplicationBuilder(BatchTestConfiguration.class, UserJobConfiguration.class)
+                .parent(parent)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "batch.users.remote-chunking=" + role,
+                        "batch.users.remote-chunking.throttle-limit=2",
+                        "batch.users.chunk-size=2",
+                        "batch.users.skip-limit=2"
+                )
+                .run();
+    }
+
+    private static DataSource dataSource() {
+        return DataSourceBuilder.create()
+                .url(MYSQL_CONTAINER.getJdbcUrl())
+                .username(MYSQL_CONTAINER.getUsername())
+                .password(MYSQL_CONTAINER.getPassword())
+                .build();
+    }
+
+    @Configuration
+    static class TransportConfiguration {
+
+        @Bean
+        QueueChannel userChunkRequests() {
+            return new QueueChannel();
+        }
+
+        @Bean
+        QueueChannel userChunkReplies() {
+            return new QueueChannel();
+        }
+
+    }
+
+    @Configuration
+    static class BatchTestConfiguration extends JdbcDefaultBatchConfiguration {
+
+        @Override
+        @Bean
+        protected DataSource getDataSource() {
+            return dataSource();
+        }
+
+        @Override
+        @Bean
+        protected PlatformTransactionManager getTransactionManager() {
+            return new JdbcTransactionManager(getDataSource());
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+
+/**
+ * Measures {@code bisect} skip isolation on chunks of 1,000 users, with users that already exist and therefore fail to be
+ * inserted making up 0.1% to 5% of the feed, next to a feed without any. {@code scan} is left out as it does not skip users
+ * that already exist. Run it with {@code ./gradlew benchmark}.
+ *
+ * @author Rashidi Zin
+ */
+@TestPropertySource(properties = { "batch.users.chunk-size=1000", "batch.users.skip-limit=1000000" })
+class SkipIsolationBenchmarkTests extends UserJobBenchmarkSupport {
+
+    @ParameterizedTest(name = "bisect with {0}% of users skipped")
+    @ValueSource(doubles = { 0, 0.1, 1, 5 })
+    @DisplayName("Given a share of users already exist When userJob is COMPLETED with bisect skip isolation Then the other users are inserted and the throughput is reported")
+    void userJob(double skipRate, TestReporter reporter) throws Exception {
+        int every = skipRate == 0 ? USERS + 1 : (int) Math.round(100 / skipRate);
+        List<Object[]> existing = IntStream.rangeClosed(1, USERS / every)
+                .mapToObj(n -> new Object[] { (long) n * every, "Existing " + n, "existing." + n })
+                .toList();
+
+        jdbc.execute("TRUNCATE TABLE users");
+        jdbc.batchUpdate("INSERT INTO users (id, name, username) VALUES (?, ?, ?)", existing);
+
+        var parameters = operator.getUniqueJobParametersBuilder()
+                .addString("skipIsolation", "bisect")
+                .toJobParameters();
+
+        var report = BenchmarkReport.start();
+        var execution = operator.startJob(parameters);
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+        reporter.publishEntry(report.stop("userJob bisect %.1f%%".formatted(skipRate), USERS));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(USERS);
+    }
+
+}
@@ -1,8 +1,13 @@
 package zin.rashidi.boot.batch.user;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
 import org.springframework.batch.core.job.JobExecution;
 import org.springframework.batch.test.JobOperatorTestUtils;
@@ -15,7 +20,9 @@ import org.springframework.boot.testcontainers.service.connection.ServiceConnect
 import org.springframework.context.annotation.Bean;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlMergeMode;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -25,11 +32,16 @@ import javax.sql.DataSource;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.batch.core.BatchStatus.FAILED;
 import static org.springframework.batch.core.ExitStatus.COMPLETED;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.AFTER_TEST_METHOD;
+import static org.springframework.test.context.jdbc.SqlMergeMode.MergeMode.MERGE;
 import static org.awaitility.Awaitility.await;
 import static zin.rashidi.boot.batch.user.UserBatchJobTests.BatchTestConfiguration;
 import static zin.rashidi.boot.batch.user.UserBatchJobTests.JdbcTestConfiguration;
+import static zin.rashidi.boot.batch.user.UserBatchJobTests.MetricsTestConfiguration;
 
 /**
  * @author Rashidi Zin
@@ -39,20 +51,27 @@ import static zin.rashidi.boot.batch.user.UserBatchJobTests.JdbcTestConfiguratio
 @SpringBootTest(classes = {
         BatchTestConfiguration.class,
         JdbcTestConfiguration.class,
+        MetricsTestConfiguration.class,
         UserJobConfiguration.class
 }, webEnvironment = NONE)
 @Sql(
         scripts = {
                 "classpath:org/springframework/batch/core/schema-drop-mysql.sql",
-                "classpath:org/springframework/batch/core/schema-mysql.sql"
+                "classpath:org/springframework/batch/core/schema-mysql.sql",
+                "classpath:schema-users.sql"
         },
-        statements = "CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, name text, username text)"
+        statements = {
+                "CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, name text, username text)",
+                "INSERT INTO username_blocklist (username, verdict) VALUES ('Elwyn.Skiles', 'FILTERED'), ('Maxime_Nienow', 'BLOCKED') AS seed ON DUPLICATE KEY UPDATE verdict = seed.verdict"
+        }
 )
 class UserBatchJobTests {
 
     @Container
     @ServiceConnection
-    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts");
+    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts")
+            .withCommand("--local-infile=1")
+            .withUrlParam("allowLoadLocalInfile", "true");
 
     @Autowired
     private JobOperatorTestUtils operator;
@@ -60,6 +79,9 @@ class UserBatchJobTests {
     @Autowired
     private JdbcTemplate jdbc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     @DisplayName("Given the username Elwyn.Skiles and Maxime_Nienow are skipped, When job is executed, Then users are not inserted into database")
     void findAll() {
@@ -106,9 +128,187 @@ class UserBatchJobTests {
 
     }
 
+    @Test
+    @DisplayName("Given Maxime_Nienow is skipped and Elwyn.Skiles is filtered, When job is executed, Then chunk timings, 8 written users and 1 process skip are recorded")
+    void metrics() throws Exception {
+        var writes = meterRegistry.get("batch.chunk.write").timer().count();
+        var items = meterRegistry.get("batch.chunk.items").counter().count();
+        var skips = meterRegistry.get("batch.chunk.skips").tag("stage", "process").counter().count();
+
+        assertThat(operator.startJob().getExitStatus()).isEqualTo(COMPLETED);
+
+        assertThat(meterRegistry.get("batch.chunk.write").timer().count()).isGreaterThan(writes);
+        assertThat(meterRegistry.get("batch.chunk.items").counter().count() - items).isEqualTo(8);
+        assertThat(meterRegistry.get("batch.chunk.skips").tag("stage", "process").counter().count() - skips).isEqualTo(1);
+    }
+
+    @Test
+    @SqlMergeMode(MERGE)
+    @Sql(statements = "INSERT INTO users (id, name, username) VALUES (3, 'Clementine Bauch', 'Samantha')")
+    @DisplayName("Given user 3 already exists, When job is executed with the default skip isolation, Then the job fails instead of skipping user 3")
+    void duplicateFailsScan() throws Exception {
+        assertThat(operator.startJob().getStatus()).isEqualTo(FAILED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "multi-row", "load-data" })
+    @DisplayName("Given the username Elwyn.Skiles and Maxime_Nienow are skipped, When job is executed with another write mode, Then the other users are inserted")
+    void writeMode(String writeMode) throws Exception {
+        var parameters = operator.getUniqueJobParametersBuilder()
+                .addString("writeMode", writeMode)
+                .toJobParameters();
+
+        assertThat(operator.startJob(parameters).getExitStatus()).isEqualTo(COMPLETED);
+
+        var users = jdbc.query("SELECT * FROM users", (rs, _) ->
+                new User(rs.getLong("id"), rs.getString("name"), rs.getString("username"))
+        );
+
+        assertThat(users).extracting(User::id).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 9L, 10L);
+        assertThat(users).extracting(User::name).contains("Leanne Graham", "Clementina DuBuque");
+    }
+
+    @Test
+    @SqlMergeMode(MERGE)
+    @Sql(statements = {
+            "INSERT INTO users (id, name, username) VALUES (2, 'Ervin Howell', 'Antonette')",
+            "INSERT INTO users (id, name, username) VALUES (3, 'Clementine', 'Samantha')"
+    })
+    @DisplayName("Given user 2 exists unchanged and user 3 exists with another name, When job is executed with upsert write mode, Then user 3 is updated and nothing is rolled back")
+    void upsert() throws Exception {
+        var parameters = operator.getUniqueJobParametersBuilder()
+                .addString("writeMode", "upsert")
+                .toJobParameters();
+
+        var execution = operator.startJob(parameters);
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+        assertThat(execution.getStepExecutions()).singleElement().satisfies(step -> {
+            assertThat(step.getRollbackCount()).isZero();
+            assertThat(step.getWriteSkipCount()).isZero();
+            assertThat(step.getExecutionContext().getLong(UpsertItemWriter.INSERTED)).isEqualTo(6);
+            assertThat(step.getExecutionContext().getLong(UpsertItemWriter.UPDATED)).isEqualTo(1);
+            assertThat(step.getExecutionContext().getLong(UpsertItemWriter.UNCHANGED)).isEqualTo(1);
+        });
+
+        assertThat(jdbc.queryForObject("SELECT name FROM users WHERE id = 3", String.class)).isEqualTo("Clementine Bauch");
+    }
+
+    @Test
+    @SqlMergeMode(MERGE)
+    @Sql(statements = {
+            "UPDATE username_blocklist SET verdict = 'ALLOWED' WHERE username = 'Elwyn.Skiles'",
+            "INSERT INTO username_blocklist (username, verdict) VALUES ('Bret', 'FILTERED') AS seed ON DUPLICATE KEY UPDATE verdict = seed.verdict"
+    })
+    @Sql(statements = "UPDATE username_blocklist SET verdict = 'ALLOWED' WHERE username = 'Bret'", executionPhase = AFTER_TEST_METHOD)
+    @DisplayName("Given Elwyn.Skiles is allowed and Bret is filtered since the last execution, When job is executed, Then Elwyn.Skiles is inserted and Bret is not")
+    void blocklistChanged() throws Exception {
+        assertThat(operator.startJob().getExitStatus()).isEqualTo(COMPLETED);
+
+        var usernames = jdbc.queryForList("SELECT username FROM users", String.class);
+
+        assertThat(usernames).contains("Elwyn.Skiles").doesNotContain("Bret", "Maxime_Nienow");
+    }
+
+    /**
+     * Runs with a skip limit of 2, as a user that already exists is skipped in write on top of Maxime_Nienow in process.
+     */
+    @Nested
+    @TestPropertySource(properties = "batch.users.skip-limit=2")
+    class BisectSkipIsolation {
+
+        @Autowired
+        private JobOperatorTestUtils operator;
+
+        @Autowired
+        private JdbcTemplate jdbc;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Test
+        @SqlMergeMode(MERGE)
+        @Sql(statements = "INSERT INTO users (id, name, username) VALUES (3, 'Clementine Bauch', 'Samantha')")
+        @DisplayName("Given user 3 already exists, When job is executed with bisect skip isolation, Then user 3 is skipped in write and the other users are inserted")
+        void bisect() throws Exception {
+            var skips = meterRegistry.get("batch.chunk.skips").tag("stage", "write").counter().count();
+            var parameters = operator.getUniqueJobParametersBuilder()
+                    .addString("skipIsolation", "bisect")
+                    .toJobParameters();
+
+            var execution = operator.startJob(parameters);
+
+            assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+            assertThat(execution.getStepExecutions()).singleElement().satisfies(step -> {
+                assertThat(step.getProcessSkipCount()).isEqualTo(1);
+                assertThat(step.getWriteSkipCount()).isEqualTo(1);
+                assertThat(step.getWriteCount()).isEqualTo(7);
+            });
+
+            var ids = jdbc.queryForList("SELECT id FROM users", Long.class);
+
+            assertThat(ids).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 9L, 10L);
+            assertThat(meterRegistry.get("batch.chunk.skips").tag("stage", "write").counter().count() - skips).isEqualTo(1);
+        }
+
+        @Test
+        @SqlMergeMode(MERGE)
+        @Sql(statements = "INSERT INTO users (id, name, username) VALUES (3, 'Clementine Bauch', 'Samantha'), (4, 'Patricia Lebsack', 'Karianne')")
+        @DisplayName("Given users 3 and 4 already exist and Maxime_Nienow is not allowed, When job is executed with bisect skip isolation and a skip limit of 2, Then the job fails as write and process skips share the limit and none of them is kept in users_rejected")
+        void bisectSkipLimit() throws Exception {
+            var parameters = operator.getUniqueJobParametersBuilder()
+                    .addString("skipIsolation", "bisect")
+                    .toJobParameters();
+
+            assertThat(operator.startJob(parameters).getStatus()).isEqualTo(FAILED);
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users_rejected", Long.class)).isZero();
+        }
+
+        @Test
+        @SqlMergeMode(MERGE)
+        @Sql(statements = "INSERT INTO users (id, name, username) VALUES (3, 'Clementine Bauch', 'Samantha')")
+        @DisplayName("Given user 3 already exists, When job is executed with load-data write mode and bisect skip isolation, Then only user 3 is left out of the load")
+        void loadDataWithBisect() throws Exception {
+            var parameters = operator.getUniqueJobParametersBuilder()
+                    .addString("writeMode", "load-data")
+                    .addString("skipIsolation", "bisect")
+                    .toJobParameters();
+
+            assertThat(operator.startJob(parameters).getExitStatus()).isEqualTo(COMPLETED);
+            assertThat(jdbc.queryForList("SELECT id FROM users", Long.class)).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L, 9L, 10L);
+        }
+
+        @Test
+        @SqlMergeMode(MERGE)
+        @Sql(statements = "INSERT INTO users (id, name, username) VALUES (3, 'Clementine Bauch', 'Samantha')")
+        @DisplayName("Given Maxime_Nienow is not allowed and user 3 already exists, When job is executed with bisect skip isolation, Then both are kept in users_rejected with their reason")
+        void rejected() throws Exception {
+            var rejects = meterRegistry.get("batch.chunk.rejects").tag("reason", "UsernameNotAllowedException").counter().count();
+            var parameters = operator.getUniqueJobParametersBuilder()
+                    .addString("skipIsolation", "bisect")
+                    .toJobParameters();
+
+            var execution = operator.startJob(parameters);
+
+            assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+            var rejected = jdbc.queryForList("SELECT job_execution_id, stage, reason, id, username FROM users_rejected ORDER BY id");
+
+            assertThat(rejected).extracting(row -> row.get("job_execution_id")).containsOnly(execution.getId());
+            assertThat(rejected).extracting(row -> row.get("stage"), row -> row.get("reason"), row -> row.get("id"), row -> row.get("username"))
+                    .containsExactly(
+                            tuple("write", "DuplicateKeyException", 3L, "Samantha"),
+                            tuple("process", "UsernameNotAllowedException", 8L, "Maxime_Nienow")
+                    );
+            assertThat(meterRegistry.get("batch.chunk.rejects").tag("reason", "UsernameNotAllowedException").counter().count() - rejects).isEqualTo(1);
+        }
+
+    }
+
     @AfterEach
     void truncateUsers() {
         jdbc.execute("TRUNCATE TABLE users");
+        jdbc.execute("TRUNCATE TABLE users_rejected");
     }
 
     @TestConfiguration
@@ -142,4 +342,14 @@ class UserBatchJobTests {
 
     }
 
+    @TestConfiguration
+    static class MetricsTestConfiguration {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.batch.core.configuration.support.JdbcDefaultBatchConfiguration;
+import org.springframework.batch.test.JobOperatorTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mysql.MySQLContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+import static zin.rashidi.boot.batch.user.UserJobBenchmarkSupport.BatchTestConfiguration;
+import static zin.rashidi.boot.batch.user.UserJobBenchmarkSupport.JdbcTestConfiguration;
+
+/**
+ * Runs {@code userJob} against MySQL and a generated feed of {@code benchmark.users} users. Benchmarks extend it and are
+ * tagged {@code benchmark}, so they are excluded from {@code test} and run with {@code ./gradlew benchmark}.
+ * <p>
+ * MySQL accepts {@code LOAD DATA LOCAL INFILE}, as required by the {@code load-data} write mode.
+ *
+ * @author Rashidi Zin
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBatchTest
+@SpringBootTest(classes = {
+        BatchTestConfiguration.class,
+        JdbcTestConfiguration.class,
+        UserJobConfiguration.class
+}, webEnvironment = NONE)
+@Sql(
+        scripts = {
+                "classpath:org/springframework/batch/core/schema-drop-mysql.sql",
+                "classpath:org/springframework/batch/core/schema-mysql.sql",
+                "classpath:schema-users.sql"
+        },
+        statements = {
+                "DROP TABLE IF EXISTS users",
+                "CREATE TABLE users (id BIGINT PRIMARY KEY, name text, username text)"
+        }
+)
+abstract class UserJobBenchmarkSupport {
+
+    static final int USERS = Integer.getInteger("benchmark.users", 100_000);
+
+    @Container
+    @ServiceConnection
+    private final static MySQLContainer MYSQL_CONTAINER = new MySQLContainer("mysql:lts")
+            .withCommand("--local-infile=1")
+            .withUrlParam("allowLoadLocalInfile", "true");
+
+    @Autowired
+    JobOperatorTestUtils operator;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void usersResource(DynamicPropertyRegistry registry) {
+        var fixture = usersFixture();
+
+        registry.add("batch.users.resource", () -> "file:" + fixture);
+    }
+
+    private static Path usersFixture() {
+        try {
+            var fixture = Files.createTempFile("users", ".json");
+
+            fixture.toFile().deleteOnExit();
+
+            try (var writer = Files.newBufferedWriter(fixture)) {
+                writer.write('[');
+
+                for (int id = 1; id <= USERS; id++) {
+                    if (id > 1) {
+                        writer.write(",\n");
+                    }
+
+                    writer.write("""
+                            {"id":%1$d,"name":"User %1$d","username":"user.%1$d","email":"user.%1$d@example.com",\
+                            "address":{"street":"Kulas Light","suite":"Apt. %1$d","city":"Gwenborough","zipcode":"92998-3874"},\
+                            "phone":"1-770-736-8031","website":"example.com"}\
+                            """.formatted(id));
+                }
+
+                writer.write(']');
+            }
+
+            return fixture;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class BatchTestConfiguration extends JdbcDefaultBatchConfiguration {
+
+        @Override
+        @Bean
+        protected DataSource getDataSource() {
+            return DataSourceBuilder.create()
+                    .url(MYSQL_CONTAINER.getJdbcUrl())
+                    .username(MYSQL_CONTAINER.getUsername())
+                    .password(MYSQL_CONTAINER.getPassword())
+                    .build();
+        }
+
+        @Override
+        @Bean
+        protected PlatformTransactionManager getTransactionManager() {
+            return new JdbcTransactionManager(getDataSource());
+        }
+
+    }
+
+    @TestConfiguration
+    static class JdbcTestConfiguration {
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+
+/**
+ * Runs {@code userJob} against a generated feed of {@code benchmark.users} users. Excluded from {@code test}, run it with
+ * {@code ./gradlew benchmark -Pbenchmark.users=1000000}.
+ *
+ * @author Rashidi Zin
+ */
+class UserJobBenchmarkTests extends UserJobBenchmarkSupport {
+
+    @Test
+    @DisplayName("Given a generated feed of users When userJob is COMPLETED Then every user is inserted and throughput, allocation and peak heap are reported")
+    void userJob(TestReporter reporter) throws Exception {
+        var report = BenchmarkReport.start();
+        var execution = operator.startJob();
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+        long written = execution.getStepExecutions().iterator().next().getWriteCount();
+
+        reporter.publishEntry(report.stop("userJob", written));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(USERS);
+    }
+
+}
@@ -0,0 +1,69 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import zin.rashidi.boot.batch.user.UsernameBlocklist.BloomFilter;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static zin.rashidi.boot.batch.user.UsernameBlocklist.Verdict.ALLOWED;
+import static zin.rashidi.boot.batch.user.UsernameBlocklist.Verdict.BLOCKED;
+import static zin.rashidi.boot.batch.user.UsernameBlocklist.Verdict.FILTERED;
+
+/**
+ * @author Rashidi Zin
+ */
+class UsernameBlocklistTests {
+
+    @Test
+    @DisplayName("Given Elwyn.Skiles is filtered and Maxime_Nienow is blocked When their verdicts are asked Then other usernames are allowed")
+    void verdict() {
+        var blocklist = new UsernameBlocklist(null, 100, 0.01);
+
+        blocklist.apply("Elwyn.Skiles", FILTERED);
+        blocklist.apply("Maxime_Nienow", BLOCKED);
+
+        assertThat(blocklist.verdict("Elwyn.Skiles")).isEqualTo(FILTERED);
+        assertThat(blocklist.verdict("Maxime_Nienow")).isEqualTo(BLOCKED);
+        assertThat(blocklist.verdict("Bret")).isEqualTo(ALLOWED);
+    }
+
+    @Test
+    @DisplayName("Given Maxime_Nienow is blocked When the username is allowed again Then it is removed from the blocklist")
+    void allowAgain() {
+        var blocklist = new UsernameBlocklist(null, 100, 0.01);
+
+        blocklist.apply("Maxime_Nienow", BLOCKED);
+        blocklist.apply("Maxime_Nienow", ALLOWED);
+
+        assertThat(blocklist.verdict("Maxime_Nienow")).isEqualTo(ALLOWED);
+        assertThat(blocklist.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Given the blocklist expects 10 usernames When 1000 are blocked Then every one of them is still blocked")
+    void outgrowCapacity() {
+        var blocklist = new UsernameBlocklist(null, 10, 0.01);
+
+        IntStream.range(0, 1000).forEach(i -> blocklist.apply("blocked." + i, BLOCKED));
+
+        assertThat(IntStream.range(0, 1000).mapToObj(i -> blocklist.verdict("blocked." + i))).containsOnly(BLOCKED);
+        assertThat(blocklist.verdict("Bret")).isEqualTo(ALLOWED);
+    }
+
+    @Test
+    @DisplayName("Given a Bloom filter of 10000 usernames at 1% When 10000 other usernames are checked Then about 1% of them might be contained")
+    void falsePositiveRate() {
+        var filter = new BloomFilter(10_000, 0.01);
+
+        IntStream.range(0, 10_000).forEach(i -> filter.put("blocked." + i));
+
+        var falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("user." + i)).count();
+
+        assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("blocked." + i))).isTrue();
+        assertThat(falsePositives).isLessThan(200);
+        assertThat(filter.sizeInBytes()).isLessThan(16 * 1024);
+    }
+
+}
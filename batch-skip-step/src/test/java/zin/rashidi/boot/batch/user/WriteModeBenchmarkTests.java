@@ -0,0 +1,65 @@
+package zin.rashidi.boot.batch.user;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.batch.core.job.parameters.JobParameters;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.batch.core.ExitStatus.COMPLETED;
+
+/**
+ * Compares the rows per second inserted by each {@code writeMode} for a generated feed of {@code benchmark.users} users, in
+ * chunks of 1,000. Run it with {@code ./gradlew benchmark}.
+ *
+ * @author Rashidi Zin
+ */
+@TestPropertySource(properties = "batch.users.chunk-size=1000")
+class WriteModeBenchmarkTests extends UserJobBenchmarkSupport {
+
+    @ParameterizedTest
+    @ValueSource(strings = { "batch", "multi-row", "load-data", "upsert" })
+    @DisplayName("Given a generated feed of users When userJob is COMPLETED with a write mode Then every user is inserted and rows per second are reported")
+    void userJob(String writeMode, TestReporter reporter) throws Exception {
+        var parameters = operator.getUniqueJobParametersBuilder()
+                .addString("writeMode", writeMode)
+                .toJobParameters();
+
+        var report = BenchmarkReport.start();
+        var execution = operator.startJob(parameters);
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+
+        long written = execution.getStepExecutions().iterator().next().getWriteCount();
+
+        reporter.publishEntry(report.stop("userJob " + writeMode, written));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(USERS);
+    }
+
+    @Test
+    @DisplayName("Given every user was imported When userJob is replayed with upsert write mode Then no user is rolled back or changed and rows per second are reported")
+    void replay(TestReporter reporter) throws Exception {
+        assertThat(operator.startJob(upsert()).getExitStatus()).isEqualTo(COMPLETED);
+
+        var report = BenchmarkReport.start();
+        var execution = operator.startJob(upsert());
+        var step = execution.getStepExecutions().iterator().next();
+
+        reporter.publishEntry(report.stop("userJob upsert replay", step.getWriteCount()));
+
+        assertThat(execution.getExitStatus()).isEqualTo(COMPLETED);
+        assertThat(step.getRollbackCount()).isZero();
+        assertThat(step.getExecutionContext().getLong(UpsertItemWriter.UNCHANGED)).isEqualTo(USERS);
+    }
+
+    private JobParameters upsert() {
+        return operator.getUniqueJobParametersBuilder()
+                .addString("writeMode", "upsert")
+                .toJobParameters();
+    }
+
+}
@@ -29,6 +29,7 @@ dependencies {
     implementation(platform("org.springframework.cloud:spring-cloud-dependencies:${springCloudVersion}"))
 
     implementation("org.springframework.boot:spring-boot-restclient")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.springframework.boot:spring-boot-starter-data-jdbc")
     implementation("org.springframework.cloud:spring-cloud-starter-bootstrap")
     implementation("org.springframework.cloud:spring-cloud-config-server")
@@ -42,5 +43,22 @@ dependencies {
 }
 
 tasks.named<Test>("test") {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("load")
+    }
+}
+
+tasks.register<Test>("loadTest") {
+    description = "Runs -Pload.clients concurrent clients, each fetching its environment -Pload.requests times."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    systemProperty("load.clients", providers.gradleProperty("load.clients").getOrElse("2000"))
+    systemProperty("load.requests", providers.gradleProperty("load.requests").getOrElse("10"))
+    maxHeapSize = "2g"
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+    useJUnitPlatform {
+        includeTags("load")
+    }
 }
\ No newline at end of file
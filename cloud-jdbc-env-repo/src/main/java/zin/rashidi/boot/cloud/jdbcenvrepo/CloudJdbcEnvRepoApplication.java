@@ -2,7 +2,9 @@ package zin.rashidi.boot.cloud.jdbcenvrepo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.config.server.EnableConfigServer;
 
+@EnableConfigServer
 @SpringBootApplication
 public class CloudJdbcEnvRepoApplication {
 
@@ -0,0 +1,165 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * The last {@link Environment} fetched for an application, profile and label, kept in a binary file of length-prefixed UTF-8
+ * strings. The file is memory-mapped when read and replaced atomically when written, so a reader never sees half of it.
+ * <p>
+ * Every snapshot records the run that wrote it, which tells a snapshot left by an earlier run apart from one written since
+ * this JVM started.
+ *
+ * @author Rashidi Zin
+ */
+class ConfigSnapshot {
+
+    private static final int MAGIC = 0x434f4e46;
+    private static final int FORMAT = 1;
+
+    private final Path file;
+
+    ConfigSnapshot(Path file) {
+        this.file = file;
+    }
+
+    Optional<Snapshot> read(String application, String profile, String label) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+
+        try (var channel = FileChannel.open(file, READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                return Optional.empty();
+            }
+
+            var run = string(buffer);
+
+            if (!Objects.equals(application, string(buffer)) || !Objects.equals(profile, string(buffer)) || !Objects.equals(label, string(buffer))) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new Snapshot(run, environment(buffer)));
+        } catch (IOException | RuntimeException e) {
+            // A missing, foreign or truncated snapshot is treated as no snapshot at all
+            return Optional.empty();
+        }
+    }
+
+    void write(String run, String application, String profile, String label, Environment environment) {
+        var bytes = new ByteArrayOutputStream();
+
+        try (var output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT);
+            string(output, run);
+            string(output, application);
+            string(output, profile);
+            string(output, label);
+            string(output, environment.getName());
+            output.writeInt(environment.getProfiles().length);
+
+            for (var name : environment.getProfiles()) {
+                string(output, name);
+            }
+
+            string(output, environment.getLabel());
+            string(output, environment.getVersion());
+            string(output, environment.getState());
+            output.writeInt(environment.getPropertySources().size());
+
+            for (var source : environment.getPropertySources()) {
+                string(output, source.getName());
+                output.writeInt(source.getSource().size());
+
+                for (var property : source.getSource().entrySet()) {
+                    string(output, String.valueOf(property.getKey()));
+                    string(output, property.getValue() == null ? null : String.valueOf(property.getValue()));
+                }
+            }
+
+            output.flush();
+
+            var directory = Files.createDirectories(file.toAbsolutePath().getParent());
+            var temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+            Files.write(temporary, bytes.toByteArray());
+            Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write config snapshot to " + file, e);
+        }
+    }
+
+    private static Environment environment(ByteBuffer buffer) {
+        var name = string(buffer);
+        var profiles = new String[buffer.getInt()];
+
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = string(buffer);
+        }
+
+        var environment = new Environment(name, profiles, string(buffer), string(buffer), string(buffer));
+
+        for (int sources = buffer.getInt(); sources > 0; sources--) {
+            var sourceName = string(buffer);
+            var properties = new LinkedHashMap<String, Object>();
+
+            for (int entries = buffer.getInt(); entries > 0; entries--) {
+                properties.put(string(buffer), string(buffer));
+            }
+
+            environment.add(new PropertySource(sourceName, properties));
+        }
+
+        return environment;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        var bytes = new byte[length];
+
+        buffer.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    private static void string(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        var bytes = value.getBytes(UTF_8);
+
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    record Snapshot(String run, Environment environment) {
+    }
+
+}
@@ -0,0 +1,40 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentRepository;
+import org.springframework.context.annotation.Bean;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+/**
+ * Places {@link SnapshotEnvironmentRepository} in front of the {@link JdbcEnvironmentRepository} that the bootstrap context
+ * reads this application's configuration from. It is listed in {@code META-INF/spring.factories} rather than annotated with
+ * {@link org.springframework.context.annotation.Configuration}, so that it is only registered in the bootstrap context.
+ *
+ * @author Rashidi Zin
+ */
+@ConditionalOnProperty("app.config.snapshot.file")
+class ConfigSnapshotBootstrapConfiguration {
+
+    @Bean
+    static BeanPostProcessor snapshotEnvironmentRepositoryPostProcessor(@Value("${app.config.snapshot.file}") Path file) {
+        var runtime = ManagementFactory.getRuntimeMXBean();
+
+        return new SnapshotPostProcessor(new ConfigSnapshot(file), "%d@%d".formatted(runtime.getPid(), runtime.getStartTime()));
+    }
+
+    private record SnapshotPostProcessor(ConfigSnapshot snapshot, String run) implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof JdbcEnvironmentRepository repository
+                    ? new SnapshotEnvironmentRepository(repository, snapshot, run)
+                    : bean;
+        }
+
+    }
+
+}
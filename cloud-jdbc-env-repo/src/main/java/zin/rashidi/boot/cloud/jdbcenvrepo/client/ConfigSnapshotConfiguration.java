@@ -0,0 +1,30 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Refreshes the context once the application is ready if it was started from a snapshot that turned out to be out of date.
+ *
+ * @author Rashidi Zin
+ */
+@Configuration
+@ConditionalOnProperty("app.config.snapshot.file")
+class ConfigSnapshotConfiguration {
+
+    @Bean
+    ApplicationListener<ApplicationReadyEvent> configSnapshotRevalidation(ObjectProvider<SnapshotEnvironmentRepository> repository,
+                                                                          ContextRefresher refresher) {
+        return _ -> repository.ifAvailable(snapshot -> snapshot.revalidation().thenAccept(changed -> {
+            if (changed) {
+                refresher.refresh();
+            }
+        }));
+    }
+
+}
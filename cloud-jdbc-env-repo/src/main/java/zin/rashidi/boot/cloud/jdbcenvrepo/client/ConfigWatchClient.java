@@ -0,0 +1,108 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+
+/**
+ * Long-polls the config server for changes to the environment of this application and refreshes the context as soon as one
+ * is reported, which rebinds {@link org.springframework.boot.context.properties.ConfigurationProperties} beans such as
+ * {@code GreetProperties}. The first answer only tells the client which version it started with.
+ * <p>
+ * Without {@code app.config.watch.uri}, the client watches the config server embedded in this application.
+ *
+ * @author Rashidi Zin
+ */
+class ConfigWatchClient implements SmartLifecycle {
+
+    private static final Duration BACKOFF = Duration.ofSeconds(1);
+
+    private final ContextRefresher refresher;
+    private final Environment environment;
+    private final String uri;
+    private final String application;
+    private final String profile;
+    private final String label;
+
+    private volatile Thread watcher;
+
+    ConfigWatchClient(ContextRefresher refresher, Environment environment, String uri, String application, String profile, String label) {
+        this.refresher = refresher;
+        this.environment = environment;
+        this.uri = uri;
+        this.application = application;
+        this.profile = profile;
+        this.label = label;
+    }
+
+    @Override
+    public void start() {
+        var client = RestClient.create(uri.isBlank() ? "http://localhost:" + environment.getProperty("local.server.port") : uri);
+
+        watcher = Thread.ofVirtual().name("config-watch").start(() -> watch(client));
+    }
+
+    @Override
+    public void stop() {
+        var running = watcher;
+
+        watcher = null;
+
+        if (running != null) {
+            running.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return watcher != null;
+    }
+
+    /**
+     * Starts once the embedded web server is listening.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private void watch(RestClient client) {
+        long version = -1;
+
+        while (watcher == Thread.currentThread()) {
+            try {
+                var changed = client.get()
+                        .uri("/watch/{application}/{profile}/{label}?version={version}", application, profile, label, version)
+                        .retrieve()
+                        .toEntity(Long.class);
+
+                if (changed.getStatusCode().is2xxSuccessful() && changed.getBody() != null) {
+                    if (version >= 0) {
+                        refresher.refresh();
+                    }
+
+                    version = changed.getBody();
+                }
+            } catch (RestClientException e) {
+                if (!pause()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(BACKOFF);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * @author Rashidi Zin
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.config.watch.enabled", havingValue = "true")
+class ConfigWatchConfiguration {
+
+    @Bean
+    ConfigWatchClient configWatchClient(ContextRefresher refresher, Environment environment,
+                                        @Value("${app.config.watch.uri:}") String uri,
+                                        @Value("${spring.application.name}") String application,
+                                        @Value("${spring.cloud.config.profile:default}") String profile,
+                                        @Value("${spring.cloud.config.label:master}") String label) {
+        return new ConfigWatchClient(refresher, environment, uri, application, profile, label);
+    }
+
+}
@@ -0,0 +1,121 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.core.Ordered;
+
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves the environment from {@link ConfigSnapshot} while it is revalidated against {@code delegate} in the background, so
+ * that starting the application neither waits for nor depends on the config database. This only applies to a snapshot
+ * left by an earlier run: once this run has fetched from {@code delegate}, every later fetch, such as one for a context
+ * refresh, goes to {@code delegate} and falls back to the snapshot only when it fails.
+ * <p>
+ * Every successful fetch replaces the snapshot. {@link #revalidation()} completes with {@code true} when a background
+ * revalidation found the served snapshot out of date.
+ *
+ * @author Rashidi Zin
+ */
+class SnapshotEnvironmentRepository implements EnvironmentRepository, Ordered {
+
+    private static final Log log = LogFactory.getLog(SnapshotEnvironmentRepository.class);
+
+    private final EnvironmentRepository delegate;
+    private final ConfigSnapshot snapshot;
+    private final String run;
+    private final AtomicBoolean served = new AtomicBoolean();
+    private final CompletableFuture<Boolean> revalidation = new CompletableFuture<>();
+
+    SnapshotEnvironmentRepository(EnvironmentRepository delegate, ConfigSnapshot snapshot, String run) {
+        this.delegate = delegate;
+        this.snapshot = snapshot;
+        this.run = run;
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label) {
+        var saved = snapshot.read(application, profile, label);
+
+        if (saved.isPresent() && !run.equals(saved.get().run()) && served.compareAndSet(false, true)) {
+            var stale = saved.get().environment();
+
+            Thread.ofVirtual().name("config-snapshot-revalidation").start(() -> revalidate(application, profile, label, stale));
+
+            return stale;
+        }
+
+        try {
+            return fetch(application, profile, label);
+        } catch (RuntimeException e) {
+            if (saved.isEmpty()) {
+                throw e;
+            }
+
+            log.warn("Serving config snapshot for %s/%s/%s, fetching it failed".formatted(application, profile, label), e);
+
+            return saved.get().environment();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return delegate instanceof Ordered ordered ? ordered.getOrder() : Ordered.LOWEST_PRECEDENCE;
+    }
+
+    CompletableFuture<Boolean> revalidation() {
+        return revalidation;
+    }
+
+    private void revalidate(String application, String profile, String label, Environment stale) {
+        try {
+            var fresh = fetch(application, profile, label);
+
+            revalidation.complete(!Objects.equals(sources(stale), sources(fresh)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to revalidate config snapshot for %s/%s/%s".formatted(application, profile, label), e);
+            revalidation.complete(false);
+        }
+    }
+
+    /**
+     * A snapshot that cannot be written only costs the next start its head start, so the fetched environment is still
+     * returned.
+     */
+    private Environment fetch(String application, String profile, String label) {
+        var environment = delegate.findOne(application, profile, label);
+
+        try {
+            snapshot.write(run, application, profile, label, environment);
+        } catch (UncheckedIOException e) {
+            log.warn("Unable to keep config snapshot for %s/%s/%s".formatted(application, profile, label), e);
+        }
+
+        return environment;
+    }
+
+    /**
+     * Compares property sources by name and values as strings, which is how the snapshot keeps them.
+     */
+    private static List<Map<String, String>> sources(Environment environment) {
+        return environment.getPropertySources().stream()
+                .map(source -> {
+                    Map<String, String> values = new LinkedHashMap<>();
+
+                    values.put("", source.getName());
+                    source.getSource().forEach((key, value) -> values.put(String.valueOf(key), value == null ? null : String.valueOf(value)));
+
+                    return values;
+                })
+                .toList();
+    }
+
+}
@@ -3,8 +3,21 @@ package zin.rashidi.boot.cloud.jdbcenvrepo.greet;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
+ * Bound through its setter so that a context refresh rebinds the new value into the same instance.
+ *
  * @author Rashidi Zin
  */
 @ConfigurationProperties(prefix = "app.greet")
-record GreetProperties(String name) {
+class GreetProperties {
+
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
 }
@@ -18,7 +18,7 @@ class GreetResource {
 
     @GetMapping("/greet")
     public String greet(@RequestParam String greeting) {
-        return "%s, my name is %s".formatted(greeting, properties.name());
+        return "%s, my name is %s".formatted(greeting, properties.getName());
     }
 
 }
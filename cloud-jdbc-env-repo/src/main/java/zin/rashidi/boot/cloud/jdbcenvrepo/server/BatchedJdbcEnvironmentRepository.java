@@ -0,0 +1,130 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentProperties;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Finds the same environment as {@link org.springframework.cloud.config.server.environment.JdbcEnvironmentRepository} with
+ * a single query, no matter how many applications and profiles are requested. The {@code sql} and {@code sql-without-profile}
+ * of {@link JdbcEnvironmentProperties} that it would run once per property source are combined with {@code UNION ALL}, and
+ * the rows are grouped in memory into property sources with the same names and in the same order.
+ *
+ * @author Rashidi Zin
+ */
+class BatchedJdbcEnvironmentRepository implements EnvironmentRepository, Ordered {
+
+    private static final String DEFAULT_PROFILE = "default";
+
+    private final JdbcTemplate jdbc;
+    private final String sql;
+    private final String sqlWithoutProfile;
+    private final String defaultLabel;
+    private final int order;
+
+    BatchedJdbcEnvironmentRepository(JdbcTemplate jdbc, JdbcEnvironmentProperties properties, int order) {
+        this.jdbc = jdbc;
+        this.sql = properties.getSql();
+        this.sqlWithoutProfile = properties.getSqlWithoutProfile();
+        this.defaultLabel = properties.getDefaultLabel();
+        this.order = order;
+    }
+
+    /**
+     * Like {@code JdbcEnvironmentRepository}, the {@code default} profile is added in front of the requested ones unless they
+     * start with it, and the shared {@code application} in front of the requested applications.
+     */
+    @Override
+    public Environment findOne(String application, String profile, String label) {
+        var resolvedLabel = StringUtils.hasText(label) ? label : defaultLabel;
+        var resolvedProfile = StringUtils.hasText(profile) ? profile : DEFAULT_PROFILE;
+
+        if (!resolvedProfile.startsWith(DEFAULT_PROFILE)) {
+            resolvedProfile = DEFAULT_PROFILE + "," + resolvedProfile;
+        }
+
+        var environment = new Environment(application, StringUtils.commaDelimitedListToStringArray(resolvedProfile), resolvedLabel, null, null);
+        var applications = distinct(application.startsWith("application") ? application : "application," + application).reversed();
+        List<Source> sources = new ArrayList<>();
+
+        for (var env : distinct(resolvedProfile).reversed()) {
+            for (var app : applications) {
+                sources.add(new Source(app, env));
+            }
+        }
+
+        for (var app : applications) {
+            sources.add(new Source(app, null));
+        }
+
+        var properties = properties(sources, resolvedLabel);
+
+        for (int i = 0; i < sources.size(); i++) {
+            if (!properties.get(i).isEmpty()) {
+                environment.add(new PropertySource(sources.get(i).name(), properties.get(i)));
+            }
+        }
+
+        return environment;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Runs the query of every source as a derived table, selected together with the position of its source.
+     */
+    private List<Map<String, Object>> properties(List<Source> sources, String label) {
+        var query = new StringJoiner(" UNION ALL ");
+        List<Object> arguments = new ArrayList<>();
+        List<Map<String, Object>> properties = new ArrayList<>();
+
+        for (int i = 0; i < sources.size(); i++) {
+            var source = sources.get(i);
+
+            if (source.profile() == null) {
+                query.add("SELECT %d, source.* FROM (%s) source".formatted(i, sqlWithoutProfile));
+                arguments.addAll(List.of(source.application(), label));
+            } else {
+                query.add("SELECT %d, source.* FROM (%s) source".formatted(i, sql));
+                arguments.addAll(List.of(source.application(), source.profile(), label));
+            }
+
+            properties.add(new LinkedHashMap<>());
+        }
+
+        jdbc.query(query.toString(), rs -> {
+            properties.get(rs.getInt(1)).put(rs.getString(2), rs.getString(3));
+        }, arguments.toArray());
+
+        return properties;
+    }
+
+    private static List<String> distinct(String values) {
+        return new ArrayList<>(new LinkedHashSet<>(asList(StringUtils.commaDelimitedListToStringArray(values))));
+    }
+
+    private record Source(String application, String profile) {
+
+        String name() {
+            return profile == null ? application : application + "-" + profile;
+        }
+
+    }
+
+}
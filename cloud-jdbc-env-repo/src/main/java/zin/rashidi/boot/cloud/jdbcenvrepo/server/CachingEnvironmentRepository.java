@@ -0,0 +1,145 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataAccessException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Serves environments found by {@code delegate} from memory for as long as their version in {@link PropertiesVersions} stays
+ * the same, so a steady stream of clients costs one version probe per fetch instead of a query per property source. At most
+ * {@code maxSize} environments are kept, the least recently fetched one is dropped to make room for another.
+ * <p>
+ * When the version cannot be read, for instance because {@code PROPERTIES_VERSION} was never created, changes can no longer
+ * be told apart, so every fetch goes to {@code delegate} instead of being served from memory.
+ * <p>
+ * Fetches are timed in {@code config.environment.fetch}, tagged with {@code cache} as {@code hit}, {@code miss} or
+ * {@code bypass}, next
+ * to a {@code config.environment.cache.hit.ratio} gauge and the number of cached environments in
+ * {@code config.environment.cache.size}.
+ *
+ * @author Rashidi Zin
+ */
+class CachingEnvironmentRepository implements EnvironmentRepository, Ordered {
+
+    private static final Log log = LogFactory.getLog(CachingEnvironmentRepository.class);
+
+    private final Map<Key, Versioned> environments;
+
+    private final EnvironmentRepository delegate;
+    private final PropertiesVersions versions;
+    private final Timer hits;
+    private final Timer misses;
+    private final Timer bypasses;
+    private final AtomicBoolean bypassing = new AtomicBoolean();
+
+    CachingEnvironmentRepository(EnvironmentRepository delegate, PropertiesVersions versions, int maxSize, MeterRegistry registry) {
+        this.environments = Collections.synchronizedMap(new LinkedHashMap<Key, Versioned>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Versioned> eldest) {
+                return size() > maxSize;
+            }
+
+        });
+        this.delegate = delegate;
+        this.versions = versions;
+        this.hits = registry.timer("config.environment.fetch", "cache", "hit");
+        this.misses = registry.timer("config.environment.fetch", "cache", "miss");
+        this.bypasses = registry.timer("config.environment.fetch", "cache", "bypass");
+
+        Gauge.builder("config.environment.cache.hit.ratio", this, CachingEnvironmentRepository::hitRatio).register(registry);
+        Gauge.builder("config.environment.cache.size", environments, Map::size).register(registry);
+    }
+
+    @Override
+    public Environment findOne(String application, String profile, String label) {
+        long started = System.nanoTime();
+        var key = new Key(application, profile, label);
+        long version;
+
+        try {
+            version = versions.version(application, profile, label);
+        } catch (DataAccessException e) {
+            return bypass(key, e, started);
+        }
+
+        if (bypassing.get() && bypassing.compareAndSet(true, false)) {
+            log.info("Versions of PROPERTIES can be read again, serving environments from the cache");
+        }
+
+        var cached = environments.get(key);
+
+        if (cached != null && cached.version() == version) {
+            hits.record(System.nanoTime() - started, NANOSECONDS);
+            return copy(cached.environment());
+        }
+
+        // Probed before loading, so a change made in between is picked up by the next fetch
+        var environment = delegate.findOne(application, profile, label);
+
+        environments.put(key, new Versioned(version, environment));
+        misses.record(System.nanoTime() - started, NANOSECONDS);
+
+        return copy(environment);
+    }
+
+    @Override
+    public int getOrder() {
+        return delegate instanceof Ordered ordered ? ordered.getOrder() : Ordered.LOWEST_PRECEDENCE;
+    }
+
+    private Environment bypass(Key key, DataAccessException cause, long started) {
+        if (bypassing.compareAndSet(false, true)) {
+            log.warn("Unable to read the versions of PROPERTIES, bypassing the cache until they can be read", cause);
+        }
+
+        // Versions read once the table is back may repeat those of environments cached before
+        environments.clear();
+
+        var environment = delegate.findOne(key.application(), key.profile(), key.label());
+
+        bypasses.record(System.nanoTime() - started, NANOSECONDS);
+
+        return environment;
+    }
+
+    private double hitRatio() {
+        long total = hits.count() + misses.count();
+
+        return total == 0 ? 0 : (double) hits.count() / total;
+    }
+
+    /**
+     * The server post-processes environments it returns, so every fetch gets an {@link Environment} of its own.
+     */
+    private static Environment copy(Environment environment) {
+        var copy = new Environment(environment.getName(), environment.getProfiles(), environment.getLabel(),
+                environment.getVersion(), environment.getState());
+
+        environment.getPropertySources()
+                .forEach(source -> copy.add(new PropertySource(source.getName(), new LinkedHashMap<>(source.getSource()))));
+
+        return copy;
+    }
+
+    private record Key(String application, String profile, String label) {
+    }
+
+    private record Versioned(long version, Environment environment) {
+    }
+
+}
@@ -0,0 +1,28 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * @author Rashidi Zin
+ */
+@RestController
+class ConfigWatchResource {
+
+    private final PropertiesChangeWatcher watcher;
+
+    ConfigWatchResource(PropertiesChangeWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    @GetMapping("/watch/{application}/{profile}/{label}")
+    public DeferredResult<ResponseEntity<Long>> watch(@PathVariable String application, @PathVariable String profile,
+                                                      @PathVariable String label, @RequestParam(defaultValue = "-1") long version) {
+        return watcher.watch(application, profile, label, version);
+    }
+
+}
@@ -0,0 +1,89 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentProperties;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Places {@link CachingEnvironmentRepository} in front of the {@link JdbcEnvironmentRepository} used by the config server,
+ * holding up to {@code app.config.cache.max-size} environments.
+ * With {@code app.config.jdbc.batched} enabled, the cache loads environments through
+ * {@link BatchedJdbcEnvironmentRepository} instead. The same versions let {@link PropertiesChangeWatcher} tell long-polling
+ * clients when their environment changes.
+ *
+ * @author Rashidi Zin
+ */
+@Configuration
+@EnableScheduling
+class JdbcEnvironmentConfiguration {
+
+    @Bean
+    PropertiesVersions propertiesVersions(NamedParameterJdbcTemplate jdbc,
+                                          @Value("${spring.cloud.config.server.jdbc.default-label:master}") String defaultLabel) {
+        return new PropertiesVersions(jdbc, defaultLabel);
+    }
+
+    @Bean
+    PropertiesChangeWatcher propertiesChangeWatcher(PropertiesVersions propertiesVersions,
+                                                    @Value("${app.config.watch.timeout:30s}") Duration timeout) {
+        return new PropertiesChangeWatcher(propertiesVersions, timeout);
+    }
+
+    /**
+     * Runs ahead of other post processors so that it still finds the {@link JdbcEnvironmentRepository} before anything else
+     * wraps it.
+     */
+    @Bean
+    static BeanPostProcessor cachingEnvironmentRepositoryPostProcessor(ObjectProvider<PropertiesVersions> versions,
+                                                                      ObjectProvider<NamedParameterJdbcTemplate> jdbc,
+                                                                      ObjectProvider<MeterRegistry> meterRegistry,
+                                                                      @Value("${app.config.cache.max-size:1000}") int maxSize,
+                                                                      @Value("${app.config.jdbc.batched:false}") boolean batched,
+                                                                      Environment environment) {
+        return new CachingPostProcessor(versions, meterRegistry, maxSize, repository -> batched
+                ? new BatchedJdbcEnvironmentRepository(jdbc.getObject().getJdbcTemplate(), jdbcProperties(environment), repository.getOrder())
+                : repository);
+    }
+
+    /**
+     * The same {@code spring.cloud.config.server.jdbc} properties that {@link JdbcEnvironmentRepository} is built from.
+     */
+    private static JdbcEnvironmentProperties jdbcProperties(Environment environment) {
+        return Binder.get(environment).bindOrCreate("spring.cloud.config.server.jdbc", JdbcEnvironmentProperties.class);
+    }
+
+    private record CachingPostProcessor(ObjectProvider<PropertiesVersions> versions,
+                                        ObjectProvider<MeterRegistry> meterRegistry,
+                                        int maxSize,
+                                        Function<JdbcEnvironmentRepository, EnvironmentRepository> loader) implements BeanPostProcessor, PriorityOrdered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof JdbcEnvironmentRepository repository
+                    ? new CachingEnvironmentRepository(loader.apply(repository), versions.getObject(), maxSize, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                    : bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return HIGHEST_PRECEDENCE;
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.context.request.async.DeferredResult;
+import zin.rashidi.boot.cloud.jdbcenvrepo.server.PropertiesVersions.Row;
+import zin.rashidi.boot.cloud.jdbcenvrepo.server.PropertiesVersions.Scope;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+
+/**
+ * Holds long-polling clients until the version of their environment differs from the one they already have. Every
+ * {@code app.config.watch.interval} milliseconds, {@code PROPERTIES_VERSION} is read once for all clients and only those
+ * whose environment changed are answered with its new version. A client that sees no change within {@code timeout} gets
+ * {@code 304 Not Modified} and asks again.
+ *
+ * @author Rashidi Zin
+ */
+class PropertiesChangeWatcher {
+
+    private final Map<Scope, Set<Watch>> watches = new ConcurrentHashMap<>();
+
+    private final PropertiesVersions versions;
+    private final Duration timeout;
+
+    private volatile Map<Row, Long> latest;
+
+    PropertiesChangeWatcher(PropertiesVersions versions, Duration timeout) {
+        this.versions = versions;
+        this.timeout = timeout;
+    }
+
+    DeferredResult<ResponseEntity<Long>> watch(String application, String profile, String label, long version) {
+        var scope = versions.scope(application, profile, label);
+        var watch = new Watch(new DeferredResult<>(timeout.toMillis(), ResponseEntity.status(NOT_MODIFIED).build()), version);
+
+        watches.compute(scope, (_, scoped) -> {
+            var added = scoped == null ? ConcurrentHashMap.<Watch>newKeySet() : scoped;
+
+            added.add(watch);
+
+            return added;
+        });
+
+        // Drops the scope together with its last watch, so scopes nobody waits on are no longer compared on every poll
+        watch.result().onCompletion(() -> watches.computeIfPresent(scope, (_, scoped) -> {
+            scoped.remove(watch);
+
+            return scoped.isEmpty() ? null : scoped;
+        }));
+
+        // Registered before comparing, so a change found by poll() in between is not missed
+        watch.notifyIf(scope.version(current()));
+
+        return watch.result();
+    }
+
+    @Scheduled(fixedDelayString = "${app.config.watch.interval:200}")
+    void poll() {
+        var polled = versions.all();
+
+        if (polled.equals(latest)) {
+            return;
+        }
+
+        latest = polled;
+
+        watches.forEach((scope, scoped) -> {
+            long version = scope.version(polled);
+
+            scoped.forEach(watch -> watch.notifyIf(version));
+        });
+    }
+
+    private Map<Row, Long> current() {
+        var current = latest;
+
+        if (current == null) {
+            current = latest = versions.all();
+        }
+
+        return current;
+    }
+
+    private record Watch(DeferredResult<ResponseEntity<Long>> result, long version) {
+
+        void notifyIf(long current) {
+            if (current != version) {
+                result.setResult(ResponseEntity.ok(current));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Reads the version of the configuration for an application, profile and label from {@code PROPERTIES_VERSION}. Triggers on
+ * {@code PROPERTIES} bump the version of a row every time one of its properties is inserted, updated or deleted, so the sum
+ * of every row that contributes to an environment, including the shared {@code application} and the {@code default}
+ * profile, changes whenever that environment does. The probe reads a handful of rows by primary key rather than the
+ * properties themselves.
+ *
+ * @author Rashidi Zin
+ */
+class PropertiesVersions {
+
+    private static final String SQL = """
+            SELECT COALESCE(SUM(`VERSION`), 0) FROM PROPERTIES_VERSION
+            WHERE `LABEL` = :label AND `APPLICATION` IN (:applications) AND `PROFILE` IN (:profiles)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final String defaultLabel;
+
+    PropertiesVersions(NamedParameterJdbcTemplate jdbc, String defaultLabel) {
+        this.jdbc = jdbc;
+        this.defaultLabel = defaultLabel;
+    }
+
+    long version(String application, String profile, String label) {
+        var scope = scope(application, profile, label);
+        var parameters = new MapSqlParameterSource()
+                .addValue("label", scope.label())
+                .addValue("applications", scope.applications())
+                .addValue("profiles", scope.profiles());
+
+        return jdbc.queryForObject(SQL, parameters, Long.class);
+    }
+
+    /**
+     * Every row of {@code PROPERTIES_VERSION}, for callers that work out the versions of many environments at once.
+     */
+    Map<Row, Long> all() {
+        Map<Row, Long> versions = new HashMap<>();
+
+        jdbc.query("SELECT `APPLICATION`, `PROFILE`, `LABEL`, `VERSION` FROM PROPERTIES_VERSION", rs -> {
+            versions.put(new Row(rs.getString(1), rs.getString(2), rs.getString(3)), rs.getLong(4));
+        });
+
+        return versions;
+    }
+
+    Scope scope(String application, String profile, String label) {
+        return new Scope(StringUtils.hasText(label) ? label : defaultLabel, with(application, "application"), with(profile, "default"));
+    }
+
+    record Row(String application, String profile, String label) {
+    }
+
+    /**
+     * Rows of {@code PROPERTIES_VERSION} that make up the environment of an application, profile and label.
+     */
+    record Scope(String label, List<String> applications, List<String> profiles) {
+
+        boolean includes(Row row) {
+            return label.equals(row.label()) && applications.contains(row.application()) && profiles.contains(row.profile());
+        }
+
+        long version(Map<Row, Long> versions) {
+            return versions.entrySet().stream()
+                    .filter(version -> includes(version.getKey()))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+    }
+
+    private static List<String> with(String values, String shared) {
+        Set<String> all = new LinkedHashSet<>(asList(StringUtils.commaDelimitedListToStringArray(values)));
+
+        all.add(shared);
+
+        return List.copyOf(all);
+    }
+
+}
@@ -0,0 +1,29 @@
+-- Versions of PROPERTIES, bumped by the triggers below, that CachingEnvironmentRepository and PropertiesChangeWatcher compare
+CREATE TABLE IF NOT EXISTS `PROPERTIES_VERSION`
+(
+    `APPLICATION` VARCHAR(128),
+    `PROFILE`     VARCHAR(128),
+    `LABEL`       VARCHAR(128),
+    `VERSION`     BIGINT NOT NULL,
+    PRIMARY KEY (`LABEL`, `APPLICATION`, `PROFILE`)
+);
+
+CREATE TRIGGER IF NOT EXISTS `PROPERTIES_INSERTED` AFTER INSERT ON `PROPERTIES` FOR EACH ROW
+    INSERT INTO PROPERTIES_VERSION (`APPLICATION`, `PROFILE`, `LABEL`, `VERSION`)
+    VALUES (NEW.`APPLICATION`, NEW.`PROFILE`, NEW.`LABEL`, 1)
+    ON DUPLICATE KEY UPDATE `VERSION` = `VERSION` + 1;
+
+CREATE TRIGGER IF NOT EXISTS `PROPERTIES_UPDATED` AFTER UPDATE ON `PROPERTIES` FOR EACH ROW
+    INSERT INTO PROPERTIES_VERSION (`APPLICATION`, `PROFILE`, `LABEL`, `VERSION`)
+    VALUES (NEW.`APPLICATION`, NEW.`PROFILE`, NEW.`LABEL`, 1)
+    ON DUPLICATE KEY UPDATE `VERSION` = `VERSION` + 1;
+
+CREATE TRIGGER IF NOT EXISTS `PROPERTIES_MOVED` AFTER UPDATE ON `PROPERTIES` FOR EACH ROW FOLLOWS `PROPERTIES_UPDATED`
+    INSERT INTO PROPERTIES_VERSION (`APPLICATION`, `PROFILE`, `LABEL`, `VERSION`)
+    VALUES (OLD.`APPLICATION`, OLD.`PROFILE`, OLD.`LABEL`, 1)
+    ON DUPLICATE KEY UPDATE `VERSION` = `VERSION` + 1;
+
+CREATE TRIGGER IF NOT EXISTS `PROPERTIES_DELETED` AFTER DELETE ON `PROPERTIES` FOR EACH ROW
+    INSERT INTO PROPERTIES_VERSION (`APPLICATION`, `PROFILE`, `LABEL`, `VERSION`)
+    VALUES (OLD.`APPLICATION`, OLD.`PROFILE`, OLD.`LABEL`, 1)
+    ON DUPLICATE KEY UPDATE `VERSION` = `VERSION` + 1;
@@ -15,7 +15,7 @@ import static org.springframework.boot.test.context.SpringBootTest.WebEnvironmen
 
 @AutoConfigureTestRestTemplate
 @Testcontainers
-@SpringBootTest(properties = "spring.datasource.url=jdbc:tc:mysql:lts:///test?TC_INITSCRIPT=init-script.sql", webEnvironment = RANDOM_PORT)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:tc:mysql:lts:///test?TC_INITSCRIPT=init-script.sql&TC_MY_CNF=mysql-conf", webEnvironment = RANDOM_PORT)
 class CloudJdbcEnvRepoApplicationTests {
 
     @Container
@@ -0,0 +1,157 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Simulates {@code load.clients} concurrent clients, each fetching its environment {@code load.requests} times, to size the
+ * config server. Reports latency percentiles, throughput, MySQL {@code Questions} per second and how saturated the Hikari
+ * pool was. Excluded from {@code test}, run it with {@code ./gradlew loadTest -Pload.clients=5000}.
+ *
+ * @author Rashidi Zin
+ */
+@Tag("load")
+@Testcontainers
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:mysql:lts:///test?TC_INITSCRIPT=init-script.sql&TC_MY_CNF=mysql-conf",
+        "app.config.watch.enabled=false"
+}, webEnvironment = RANDOM_PORT)
+@Sql(statements = {
+        "DELETE FROM PROPERTIES WHERE APPLICATION LIKE 'load-%'",
+        """
+        INSERT INTO PROPERTIES (`APPLICATION`, `PROFILE`, `LABEL`, `KEY`, `VALUE`)
+        WITH RECURSIVE application (id) AS (SELECT 1 UNION ALL SELECT id + 1 FROM application WHERE id < 100)
+        SELECT CONCAT('load-', id), 'default', 'master', 'app.greet.name', CONCAT('Load ', id) FROM application
+        """
+})
+class ConfigServerLoadTests {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 2_000);
+    private static final int REQUESTS = Integer.getInteger("load.requests", 10);
+    private static final int APPLICATIONS = 100;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("Given thousands of concurrent clients When each fetches its environment Then every fetch succeeds and latency, throughput, queries and pool saturation are reported")
+    void load() throws Exception {
+        var pool = dataSource.unwrap(HikariDataSource.class);
+        var latencies = new long[CLIENTS * REQUESTS];
+        var completed = new AtomicInteger();
+        var failed = new AtomicInteger();
+        var active = new LongAccumulator(Math::max, 0);
+        var awaiting = new LongAccumulator(Math::max, 0);
+
+        try (var client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build()) {
+            var questions = questions();
+            var sampler = Thread.ofVirtual().start(() -> sample(pool, active, awaiting));
+            long startedAt = System.nanoTime();
+
+            try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int id = 0; id < CLIENTS; id++) {
+                    var request = HttpRequest.newBuilder(URI.create("http://localhost:%d/load-%d/default/master".formatted(port, id % APPLICATIONS + 1)))
+                            .timeout(Duration.ofSeconds(30))
+                            .build();
+
+                    clients.submit(() -> fetch(client, request, latencies, completed, failed));
+                }
+            }
+
+            var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+            var queries = questions() - questions;
+
+            sampler.interrupt();
+
+            Arrays.sort(latencies, 0, completed.get());
+
+            System.out.printf("""
+                    %d clients x %d requests in %d ms, %d failed
+                    p50 %.2f ms, p99 %.2f ms, %.0f requests/s
+                    %d queries, %.0f queries/s
+                    pool of %d, peak %d active, peak %d threads awaiting a connection%n""",
+                    CLIENTS, REQUESTS, elapsed.toMillis(), failed.get(),
+                    percentile(latencies, completed.get(), 0.50), percentile(latencies, completed.get(), 0.99),
+                    completed.get() / seconds(elapsed),
+                    queries, queries / seconds(elapsed),
+                    pool.getMaximumPoolSize(), active.get(), awaiting.get());
+        }
+
+        assertThat(failed).hasValue(0);
+        assertThat(completed).hasValue(CLIENTS * REQUESTS);
+    }
+
+    private static void fetch(HttpClient client, HttpRequest request, long[] latencies, AtomicInteger completed, AtomicInteger failed) {
+        for (int i = 0; i < REQUESTS; i++) {
+            long startedAt = System.nanoTime();
+
+            try {
+                var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+
+                if (response.statusCode() == 200) {
+                    latencies[completed.getAndIncrement()] = System.nanoTime() - startedAt;
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    private static void sample(HikariDataSource pool, LongAccumulator active, LongAccumulator awaiting) {
+        var mxBean = pool.getHikariPoolMXBean();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            active.accumulate(mxBean.getActiveConnections());
+            awaiting.accumulate(mxBean.getThreadsAwaitingConnection());
+
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private long questions() {
+        return jdbc.queryForObject("SELECT VARIABLE_VALUE FROM performance_schema.global_status WHERE VARIABLE_NAME = 'Questions'", Long.class);
+    }
+
+    private static double percentile(long[] sorted, int size, double percentile) {
+        return size == 0 ? 0 : sorted[(int) Math.ceil(percentile * size) - 1] / 1_000_000.0;
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / 1_000_000_000.0;
+    }
+
+}
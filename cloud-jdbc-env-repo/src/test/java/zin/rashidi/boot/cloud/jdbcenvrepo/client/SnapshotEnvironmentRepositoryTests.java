@@ -0,0 +1,120 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Rashidi Zin
+ */
+class SnapshotEnvironmentRepositoryTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Given a snapshot from an earlier run and a slow database When demo is fetched Then the snapshot is served before the database answers")
+    void servedFromSnapshot() throws Exception {
+        var snapshot = new ConfigSnapshot(directory.resolve("demo.snapshot"));
+        var database = new CountDownLatch(1);
+
+        snapshot.write("earlier", "demo", "default", "master", environment("Snapshot"));
+
+        var repository = new SnapshotEnvironmentRepository((_, _, _) -> {
+            await(database);
+            return environment("Database");
+        }, snapshot, "current");
+
+        assertThat(greetName(repository.findOne("demo", "default", "master"))).isEqualTo("Snapshot");
+        assertThat(repository.revalidation()).isNotDone();
+
+        database.countDown();
+
+        assertThat(repository.revalidation()).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(true);
+        assertThat(snapshot.read("demo", "default", "master")).get()
+                .satisfies(saved -> assertThat(greetName(saved.environment())).isEqualTo("Database"))
+                .extracting(ConfigSnapshot.Snapshot::run).isEqualTo("current");
+    }
+
+    @Test
+    @DisplayName("Given a snapshot written by this run When demo is fetched again Then it is fetched from the database")
+    void refreshedFromDatabase() {
+        var snapshot = new ConfigSnapshot(directory.resolve("demo.snapshot"));
+
+        snapshot.write("current", "demo", "default", "master", environment("Snapshot"));
+
+        var repository = new SnapshotEnvironmentRepository((_, _, _) -> environment("Database"), snapshot, "current");
+
+        assertThat(greetName(repository.findOne("demo", "default", "master"))).isEqualTo("Database");
+    }
+
+    @Test
+    @DisplayName("Given the database is down When demo is fetched Then the snapshot is served and without one the failure is thrown")
+    void databaseDown() {
+        var snapshot = new ConfigSnapshot(directory.resolve("demo.snapshot"));
+        EnvironmentRepository down = (_, _, _) -> {
+            throw new IllegalStateException("Database is down");
+        };
+
+        assertThatThrownBy(() -> new SnapshotEnvironmentRepository(down, snapshot, "current").findOne("demo", "default", "master"))
+                .hasMessage("Database is down");
+
+        snapshot.write("current", "demo", "default", "master", environment("Snapshot"));
+
+        assertThat(greetName(new SnapshotEnvironmentRepository(down, snapshot, "current").findOne("demo", "default", "master")))
+                .isEqualTo("Snapshot");
+    }
+
+    @Test
+    @DisplayName("Given the snapshot cannot be written When demo is fetched Then the environment from the database is returned")
+    void snapshotNotWritable() throws Exception {
+        var snapshot = new ConfigSnapshot(Files.createFile(directory.resolve("file")).resolve("demo.snapshot"));
+        var repository = new SnapshotEnvironmentRepository((_, _, _) -> environment("Database"), snapshot, "current");
+
+        assertThat(greetName(repository.findOne("demo", "default", "master"))).isEqualTo("Database");
+    }
+
+    @Test
+    @DisplayName("Given a snapshot of demo When another application is fetched Then the snapshot is not used")
+    void otherApplication() {
+        var snapshot = new ConfigSnapshot(directory.resolve("demo.snapshot"));
+
+        snapshot.write("earlier", "demo", "default", "master", environment("Snapshot"));
+
+        assertThat(snapshot.read("other", "default", "master")).isEmpty();
+    }
+
+    private static Environment environment(String name) {
+        var environment = new Environment("demo", new String[]{ "default" }, "master", null, null);
+
+        environment.add(new PropertySource("demo-default", Map.of("app.greet.name", name)));
+
+        return environment;
+    }
+
+    private static Object greetName(Environment environment) {
+        return environment.getPropertySources().getFirst().getSource().get("app.greet.name");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.greet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@Testcontainers
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:mysql:lts:///test?TC_INITSCRIPT=init-script.sql&TC_MY_CNF=mysql-conf",
+        "spring.application.name=notified",
+        "app.config.watch.enabled=true"
+}, webEnvironment = RANDOM_PORT)
+class GreetRefreshTests {
+
+    @Autowired
+    private TestRestTemplate restClient;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("Given notified has no app.greet.name in the database When it is inserted Then greet returns the new name without a restart")
+    void refresh() {
+        assertThat(greet()).isEqualTo("Hello, my name is Default");
+
+        jdbc.update("INSERT INTO PROPERTIES (`APPLICATION`, `PROFILE`, `LABEL`, `KEY`, `VALUE`) VALUES ('notified', 'default', 'master', 'app.greet.name', 'Notified')");
+
+        await().atMost(5, SECONDS).untilAsserted(() -> assertThat(greet()).isEqualTo("Hello, my name is Notified"));
+    }
+
+    @AfterEach
+    void deleteProperties() {
+        jdbc.update("DELETE FROM PROPERTIES WHERE APPLICATION = 'notified'");
+    }
+
+    private String greet() {
+        return restClient.getForEntity("/greet?greeting={0}", String.class, "Hello").getBody();
+    }
+
+}
@@ -0,0 +1,96 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentProperties;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentRepository;
+import org.springframework.cloud.config.server.environment.JdbcEnvironmentRepository.PropertiesResultSetExtractor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@Testcontainers
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:mysql:lts:///test?TC_INITSCRIPT=init-script.sql&TC_MY_CNF=mysql-conf",
+        "app.config.jdbc.batched=true"
+}, webEnvironment = RANDOM_PORT)
+@Sql(statements = {
+        "DELETE FROM PROPERTIES WHERE APPLICATION IN ('batched', 'application')",
+        """
+        INSERT INTO PROPERTIES (`APPLICATION`, `PROFILE`, `LABEL`, `KEY`, `VALUE`) VALUES
+            ('batched', 'a', 'master', 'batched.a', 'A'),
+            ('batched', 'b', 'master', 'batched.b', 'B'),
+            ('batched', 'c', 'master', 'batched.c', 'C'),
+            ('batched', 'default', 'master', 'app.greet.name', 'Batched'),
+            ('batched', 'a', 'other', 'batched.other', 'Other'),
+            ('application', 'b', 'master', 'application.b', 'Shared B'),
+            ('application', 'default', 'master', 'application.default', 'Shared')
+        """
+})
+class BatchedJdbcEnvironmentRepositoryTests {
+
+    @Autowired
+    private TestRestTemplate restClient;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ConfigurableEnvironment environment;
+
+    @Test
+    @DisplayName("Given properties for profiles a, b and c When batched is fetched with all three Then property sources are ordered from the last profile to the default one")
+    void order() {
+        var environment = restClient.getForObject("/batched/a,b,c/master", Environment.class);
+
+        assertThat(environment.getPropertySources()).extracting(PropertySource::getName)
+                .containsExactly("batched-c", "batched-b", "application-b", "batched-a", "batched-default", "application-default", "batched", "application");
+        assertThat(environment.getPropertySources().getFirst().getSource()).containsEntry("batched.c", "C");
+        assertThat(environment.getPropertySources().getLast().getSource()).containsEntry("application.default", "Shared");
+    }
+
+    @Test
+    @DisplayName("Given only default properties When batched is fetched without a label Then the default label is used")
+    void defaultLabel() {
+        var environment = restClient.getForObject("/batched/default", Environment.class);
+
+        assertThat(environment.getPropertySources()).extracting(PropertySource::getName)
+                .containsExactly("batched-default", "application-default", "batched", "application");
+        assertThat(environment.getPropertySources()).noneMatch(source -> source.getSource().containsKey("batched.other"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "a,b,c", "c,a", "default", "default,b", "" })
+    @DisplayName("Given properties for several profiles When batched is fetched with the same profiles Then its environment is the same as the one of JdbcEnvironmentRepository")
+    void sameAsJdbcEnvironmentRepository(String profiles) {
+        var properties = Binder.get(environment).bindOrCreate("spring.cloud.config.server.jdbc", JdbcEnvironmentProperties.class);
+        var expected = new JdbcEnvironmentRepository(jdbc, properties, new PropertiesResultSetExtractor()).findOne("batched", profiles, null);
+        var actual = new BatchedJdbcEnvironmentRepository(jdbc, properties, 0).findOne("batched", profiles, null);
+
+        assertThat(actual.getProfiles()).containsExactly(expected.getProfiles());
+        assertThat(actual.getLabel()).isEqualTo(expected.getLabel());
+        assertThat(actual.getPropertySources()).extracting(PropertySource::getName, PropertySource::getSource)
+                .containsExactlyElementsOf(expected.getPropertySources().stream()
+                        .map(source -> tuple(source.getName(), source.getSource()))
+                        .toList());
+    }
+
+}
@@ -0,0 +1,117 @@
+package zin.rashidi.boot.cloud.jdbcenvrepo.server;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@Testcontainers
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:tc:mysql:lts:///test?TC_INITSCRIPT=init-script.sql&TC_MY_CNF=mysql-conf",
+        "app.config.cache.max-size=2"
+}, webEnvironment = RANDOM_PORT)
+@Sql(statements = {
+        "DELETE FROM PROPERTIES WHERE APPLICATION = 'cached'",
+        "INSERT INTO PROPERTIES (`APPLICATION`, `PROFILE`, `LABEL`, `KEY`, `VALUE`) VALUES ('cached', 'default', 'master', 'app.greet.name', 'Cached')"
+})
+class CachingEnvironmentRepositoryTests {
+
+    @Autowired
+    private TestRestTemplate restClient;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Given the properties of cached did not change When cached is fetched twice Then the second fetch is served from the cache")
+    void hit() {
+        var hits = hits();
+
+        assertThat(greetName()).isEqualTo("Cached");
+        assertThat(greetName()).isEqualTo("Cached");
+
+        assertThat(hits() - hits).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Given app.greet.name of cached changed after it was fetched When cached is fetched again Then the new value is returned")
+    void invalidate() {
+        assertThat(greetName()).isEqualTo("Cached");
+
+        jdbc.update("UPDATE PROPERTIES SET `VALUE` = 'Changed' WHERE APPLICATION = 'cached' AND `KEY` = 'app.greet.name'");
+
+        var hits = hits();
+
+        assertThat(greetName()).isEqualTo("Changed");
+        assertThat(hits()).isEqualTo(hits);
+    }
+
+    @Test
+    @DisplayName("Given the cache holds up to 2 environments When 3 environments are fetched Then only 2 of them are kept")
+    void maxSize() {
+        restClient.getForObject("/cached/default/master", Environment.class);
+        restClient.getForObject("/demo/default/master", Environment.class);
+        restClient.getForObject("/other/default/master", Environment.class);
+
+        assertThat(meterRegistry.get("config.environment.cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Given PROPERTIES_VERSION is missing When cached is fetched twice Then neither fetch is served from the cache")
+    void bypass() {
+        assertThat(greetName()).isEqualTo("Cached");
+
+        jdbc.execute("RENAME TABLE PROPERTIES_VERSION TO PROPERTIES_VERSION_MISSING");
+
+        try {
+            var hits = hits();
+            var bypasses = bypasses();
+
+            assertThat(greetName()).isEqualTo("Cached");
+            assertThat(greetName()).isEqualTo("Cached");
+
+            assertThat(hits()).isEqualTo(hits);
+            assertThat(bypasses() - bypasses).isEqualTo(2);
+            assertThat(meterRegistry.get("config.environment.cache.size").gauge().value()).isZero();
+        } finally {
+            jdbc.execute("RENAME TABLE PROPERTIES_VERSION_MISSING TO PROPERTIES_VERSION");
+        }
+    }
+
+    private String greetName() {
+        var environment = restClient.getForObject("/cached/default/master", Environment.class);
+
+        return environment.getPropertySources().stream()
+                .map(source -> source.getSource().get("app.greet.name"))
+                .filter(String.class::isInstance)
+                .map(String.class::cast)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private long hits() {
+        return meterRegistry.get("config.environment.fetch").tag("cache", "hit").timer().count();
+    }
+
+    private long bypasses() {
+        return meterRegistry.get("config.environment.fetch").tag("cache", "bypass").timer().count();
+    }
+
+}
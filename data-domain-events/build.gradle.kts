@@ -30,5 +30,19 @@ dependencies {
 }
 
 tasks.named<Test>("test") {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Compares a transaction per purchase with write-behind for -Pbenchmark.purchases purchases of one book."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    systemProperty("benchmark.purchases", providers.gradleProperty("benchmark.purchases").getOrElse("20000"))
+    outputs.upToDateWhen { false }
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
 }
\ No newline at end of file
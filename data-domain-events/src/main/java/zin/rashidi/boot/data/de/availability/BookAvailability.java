@@ -3,11 +3,14 @@ package zin.rashidi.boot.data.de.availability;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 /**
  * @author Rashidi Zin
  */
 @Entity
+@Table(indexes = @Index(columnList = "isbn", unique = true))
 class BookAvailability {
 
     @Id
@@ -42,9 +45,4 @@ class BookAvailability {
         this.total = total;
     }
 
-    public BookAvailability reduceTotal() {
-        this.total--;
-        return this;
-    }
-
 }
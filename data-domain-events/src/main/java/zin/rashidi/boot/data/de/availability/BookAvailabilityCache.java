@@ -0,0 +1,77 @@
+package zin.rashidi.boot.data.de.availability;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the {@link BookStock} of each ISBN in memory, so that asking whether a book is in stock does not reach the database. A
+ * stock is loaded on first use, and the copies taken by each purchase are subtracted from it once that purchase is committed,
+ * without reading the total again.
+ * <p>
+ * A stock that is cached while a purchase is in progress was loaded before that purchase was committed, so subtracting its
+ * copies afterwards counts them exactly once. When the stock was not cached yet, or was loaded again in the meantime, it may
+ * already include them, so it is dropped and loaded again on next use. A total raised outside the application is not seen
+ * until the application restarts.
+ *
+ * @author Rashidi Zin
+ */
+@Component
+class BookAvailabilityCache {
+
+    private final Map<Long, CachedStock> stocks = new ConcurrentHashMap<>();
+
+    private final BookAvailabilityRepository repository;
+
+    BookAvailabilityCache(BookAvailabilityRepository repository) {
+        this.repository = repository;
+    }
+
+    Optional<BookStock> find(Long isbn) {
+        return Optional.ofNullable(stocks.computeIfAbsent(isbn, key -> repository.findStockByIsbn(key).map(CachedStock::new).orElse(null)))
+                .map(CachedStock::stock);
+    }
+
+    /**
+     * Subtracts {@code quantity} copies of {@code isbn}, taken by the current transaction, once that transaction commits.
+     */
+    void taken(Long isbn, int quantity) {
+        var cached = stocks.get(isbn);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                stocks.computeIfPresent(isbn, (_, current) -> current == cached ? current.take(quantity) : null);
+            }
+
+        });
+    }
+
+    private static class CachedStock {
+
+        private final Long id;
+        private final AtomicInteger total;
+
+        CachedStock(BookStock stock) {
+            this.id = stock.id();
+            this.total = new AtomicInteger(stock.total());
+        }
+
+        CachedStock take(int quantity) {
+            total.addAndGet(-quantity);
+            return this;
+        }
+
+        BookStock stock() {
+            return new BookStock(id, total.get());
+        }
+
+    }
+
+}
@@ -1,33 +1,63 @@
 package zin.rashidi.boot.data.de.availability;
 
-import static org.springframework.transaction.annotation.Propagation.REQUIRES_NEW;
-
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.event.TransactionalEventListener;
 
 import zin.rashidi.boot.data.de.book.BookPurchaseEvent;
+import zin.rashidi.boot.data.de.book.BooksPurchaseEvent;
+import zin.rashidi.boot.data.de.outbox.DispatchedEvent;
 
 /**
+ * Takes a copy of the book as each purchase is delivered from the outbox, in the transaction that removes the purchase from
+ * the outbox. Replaced by {@link BookPurchaseWriteBehind} when {@code books.availability.write-behind.enabled} is
+ * {@code true}.
+ *
  * @author Rashidi Zin
  */
 @Service
+@ConditionalOnProperty(name = "books.availability.write-behind.enabled", havingValue = "false", matchIfMissing = true)
 class BookAvailabilityManagement {
 
     private final BookAvailabilityRepository repository;
+    private final BookAvailabilityCache cache;
+    private final ApplicationEventPublisher publisher;
 
-    BookAvailabilityManagement(BookAvailabilityRepository repository) {
+    BookAvailabilityManagement(BookAvailabilityRepository repository, BookAvailabilityCache cache, ApplicationEventPublisher publisher) {
         this.repository = repository;
+        this.cache = cache;
+        this.publisher = publisher;
     }
 
-    @TransactionalEventListener
-    @Transactional(propagation = REQUIRES_NEW)
-    public void updateTotal(BookPurchaseEvent event) {
-        var book = event.getSource();
+    @EventListener
+    @Transactional
+    public void updateTotal(DispatchedEvent<BookPurchaseEvent> dispatched) {
+        var isbn = dispatched.event().getSource().getIsbn();
+
+        if (repository.reduceTotal(isbn) == 0) {
+            publisher.publishEvent(new BookSoldOutEvent(isbn));
+        } else {
+            cache.taken(isbn, 1);
+        }
+    }
 
-        repository.findByIsbn(book.getIsbn())
-                .map(BookAvailability::reduceTotal)
-                .ifPresent(repository::save);
+    /**
+     * Takes the copies of each ISBN with one update, and reports each ISBN that ran out of copies once.
+     */
+    @EventListener
+    @Transactional
+    public void updateTotals(DispatchedEvent<BooksPurchaseEvent> dispatched) {
+        dispatched.event().getSource().forEach((isbn, quantity) -> {
+            int shortfall = repository.take(isbn, quantity);
+
+            cache.taken(isbn, quantity - shortfall);
+
+            if (shortfall > 0) {
+                publisher.publishEvent(new BookSoldOutEvent(isbn));
+            }
+        });
     }
 
 }
@@ -1,8 +1,13 @@
 package zin.rashidi.boot.data.de.availability;
 
+import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
+
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 /**
  * @author Rashidi Zin
@@ -11,4 +16,50 @@ interface BookAvailabilityRepository extends JpaRepository<BookAvailability, Lon
 
     Optional<BookAvailability> findByIsbn(Long isbn);
 
+    @Query("SELECT new zin.rashidi.boot.data.de.availability.BookStock(a.id, a.total) FROM BookAvailability a WHERE a.isbn = :isbn")
+    Optional<BookStock> findStockByIsbn(Long isbn);
+
+    /**
+     * Takes one copy of {@code isbn} in a single statement, which is atomic under concurrent purchases.
+     *
+     * @return {@code 0} when there was no copy left to take
+     */
+    @Modifying
+    @Query("UPDATE BookAvailability SET total = total - 1 WHERE isbn = :isbn AND total > 0")
+    int reduceTotal(Long isbn);
+
+    /**
+     * Takes {@code quantity} copies of {@code isbn} at once, provided that there are that many left.
+     *
+     * @return {@code 0} when there were fewer than {@code quantity} copies left
+     */
+    @Modifying
+    @Query("UPDATE BookAvailability SET total = total - :quantity WHERE isbn = :isbn AND total >= :quantity")
+    int reduceTotal(Long isbn, int quantity);
+
+    @Lock(PESSIMISTIC_WRITE)
+    Optional<BookAvailability> findWithLockByIsbn(Long isbn);
+
+    /**
+     * Takes {@code quantity} copies of {@code isbn} with a single update. Only when fewer are left, it locks the row and
+     * takes what remains.
+     *
+     * @return the number of copies that could not be taken
+     */
+    default int take(Long isbn, int quantity) {
+        if (reduceTotal(isbn, quantity) > 0) {
+            return 0;
+        }
+
+        return findWithLockByIsbn(isbn)
+                .map(availability -> {
+                    int taken = Math.min(availability.getTotal(), quantity);
+
+                    availability.setTotal(availability.getTotal() - taken);
+
+                    return quantity - taken;
+                })
+                .orElse(quantity);
+    }
+
 }
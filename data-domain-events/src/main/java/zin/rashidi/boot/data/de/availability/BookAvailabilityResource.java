@@ -0,0 +1,25 @@
+package zin.rashidi.boot.data.de.availability;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Rashidi Zin
+ */
+@RestController
+class BookAvailabilityResource {
+
+    private final BookAvailabilityCache cache;
+
+    BookAvailabilityResource(BookAvailabilityCache cache) {
+        this.cache = cache;
+    }
+
+    @GetMapping("/books/availability/{isbn}")
+    public ResponseEntity<BookStock> availability(@PathVariable Long isbn) {
+        return ResponseEntity.of(cache.find(isbn));
+    }
+
+}
@@ -0,0 +1,257 @@
+package zin.rashidi.boot.data.de.availability;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import zin.rashidi.boot.data.de.book.BookPurchaseEvent;
+import zin.rashidi.boot.data.de.book.BooksPurchaseEvent;
+import zin.rashidi.boot.data.de.outbox.DispatchedEvent;
+import zin.rashidi.boot.data.de.outbox.Outbox;
+
+/**
+ * Collects purchases delivered from the outbox per ISBN and takes them from {@link BookAvailability} with one update per ISBN,
+ * every {@code window} or as soon as {@code threshold} purchases of an ISBN are pending. During a flash sale, this turns
+ * thousands of transactions on the same row into a few.
+ * <p>
+ * Each purchase is {@linkplain Outbox#keep(DispatchedEvent) kept} in the outbox until it is removed in the same transaction
+ * that takes it, and a failed flush puts its purchases back. When the application dies, the purchases that were still
+ * pending are delivered again on the next start. Stopping the application flushes whatever is pending once nothing is
+ * delivered anymore.
+ *
+ * @author Rashidi Zin
+ */
+@Service
+@ConditionalOnProperty("books.availability.write-behind.enabled")
+class BookPurchaseWriteBehind implements SmartLifecycle {
+
+    private static final Log log = LogFactory.getLog(BookPurchaseWriteBehind.class);
+
+    private final Map<Long, Purchases> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushing = new ReentrantLock();
+
+    private final BookAvailabilityRepository repository;
+    private final BookAvailabilityCache cache;
+    private final Outbox outbox;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transaction;
+    private final Duration window;
+    private final long threshold;
+
+    private volatile ScheduledExecutorService flusher;
+
+    BookPurchaseWriteBehind(BookAvailabilityRepository repository, BookAvailabilityCache cache, Outbox outbox,
+                            ApplicationEventPublisher publisher, PlatformTransactionManager transactionManager,
+                            @Value("${books.availability.write-behind.window:100ms}") Duration window,
+                            @Value("${books.availability.write-behind.threshold:1000}") long threshold) {
+        this.repository = repository;
+        this.cache = cache;
+        this.outbox = outbox;
+        this.publisher = publisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.window = window;
+        this.threshold = threshold;
+    }
+
+    @EventListener
+    public void add(DispatchedEvent<BookPurchaseEvent> dispatched) {
+        keep(dispatched, dispatched.event().getSource().getIsbn(), 1);
+    }
+
+    @EventListener
+    public void addAll(DispatchedEvent<BooksPurchaseEvent> dispatched) {
+        dispatched.event().getSource().forEach((isbn, quantity) -> keep(dispatched, isbn, quantity));
+    }
+
+    @Override
+    public void start() {
+        var started = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("book-purchase-write-behind").daemon().factory());
+
+        started.scheduleWithFixedDelay(this::flush, window.toNanos(), window.toNanos(), TimeUnit.NANOSECONDS);
+        flusher = started;
+    }
+
+    @Override
+    public void stop() {
+        var running = flusher;
+
+        flusher = null;
+
+        if (running != null) {
+            running.shutdown();
+
+            try {
+                running.awaitTermination(window.toMillis() + 30_000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    /**
+     * Stops after the web server and the outbox dispatcher, so that nothing is counted after the last flush.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    long pending(Long isbn) {
+        var purchases = pending.get(isbn);
+
+        return purchases == null ? 0 : purchases.quantity();
+    }
+
+    void flush() {
+        flushing.lock();
+
+        try {
+            flushRequested.set(false);
+            pending.forEach(this::flush);
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    /**
+     * Keeps the purchase in the outbox and adds it to the pending ones once its delivery is committed.
+     */
+    private void keep(DispatchedEvent<?> dispatched, Long isbn, int quantity) {
+        outbox.keep(dispatched);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                add(isbn, new Purchase(dispatched.id(), quantity));
+            }
+
+        });
+    }
+
+    private void add(Long isbn, Purchase purchase) {
+        var purchases = pending.compute(isbn, (_, current) -> (current == null ? new Purchases() : current).add(purchase));
+
+        var running = flusher;
+
+        if (running == null) {
+            flush();
+        } else if (purchases.quantity() >= threshold && flushRequested.compareAndSet(false, true)) {
+            try {
+                running.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Stopped in the meantime, so this purchase is flushed right here
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Takes the pending purchases of {@code isbn}, and forgets the ISBN once none are left, so that only the ISBNs that are being
+     * purchased are kept.
+     */
+    private void flush(Long isbn, Purchases purchases) {
+        var taken = purchases.drain();
+
+        if (!taken.isEmpty()) {
+            take(isbn, purchases, taken);
+        }
+
+        pending.computeIfPresent(isbn, (_, current) -> current.isEmpty() ? null : current);
+    }
+
+    private void take(Long isbn, Purchases purchases, List<Purchase> taken) {
+        int quantity = taken.stream().mapToInt(Purchase::quantity).sum();
+
+        try {
+            int shortfall = transaction.execute(_ -> {
+                int missing = repository.take(isbn, quantity);
+
+                outbox.remove(taken.stream().map(Purchase::outboxId).toList());
+                cache.taken(isbn, quantity - missing);
+
+                return missing;
+            });
+
+            if (shortfall > 0) {
+                publisher.publishEvent(new BookSoldOutEvent(isbn));
+            }
+        } catch (RuntimeException e) {
+            taken.forEach(purchases::add);
+            log.warn("Unable to take %d copies of %d, retrying in %s".formatted(quantity, isbn, window), e);
+        }
+    }
+
+    private record Purchase(Long outboxId, int quantity) {
+    }
+
+    /**
+     * The pending purchases of an ISBN, with their total quantity kept alongside for the threshold.
+     */
+    private static class Purchases {
+
+        private final Queue<Purchase> purchases = new ConcurrentLinkedQueue<>();
+        private final LongAdder quantity = new LongAdder();
+
+        Purchases add(Purchase purchase) {
+            purchases.add(purchase);
+            quantity.add(purchase.quantity());
+            return this;
+        }
+
+        boolean isEmpty() {
+            return purchases.isEmpty();
+        }
+
+        long quantity() {
+            return quantity.sum();
+        }
+
+        List<Purchase> drain() {
+            List<Purchase> drained = new ArrayList<>();
+
+            for (var purchase = purchases.poll(); purchase != null; purchase = purchases.poll()) {
+                quantity.add(-purchase.quantity());
+                drained.add(purchase);
+            }
+
+            return drained;
+        }
+
+    }
+
+}
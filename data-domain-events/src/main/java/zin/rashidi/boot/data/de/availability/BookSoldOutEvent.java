@@ -0,0 +1,21 @@
+package zin.rashidi.boot.data.de.availability;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a book is purchased but there is no copy of its {@code isbn} left.
+ *
+ * @author Rashidi Zin
+ */
+public class BookSoldOutEvent extends ApplicationEvent {
+
+    public BookSoldOutEvent(Long isbn) {
+        super(isbn);
+    }
+
+    @Override
+    public Long getSource() {
+        return (Long) super.getSource();
+    }
+
+}
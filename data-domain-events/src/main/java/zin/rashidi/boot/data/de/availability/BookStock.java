@@ -0,0 +1,9 @@
+package zin.rashidi.boot.data.de.availability;
+
+/**
+ * The id and total of the {@link BookAvailability} of an ISBN.
+ *
+ * @author Rashidi Zin
+ */
+record BookStock(Long id, int total) {
+}
@@ -1,9 +1,19 @@
 package zin.rashidi.boot.data.de.book;
 
+import static jakarta.persistence.LockModeType.PESSIMISTIC_WRITE;
+
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 
 /**
  * @author Rashidi Zin
  */
 public interface BookRepository extends JpaRepository<Book, Long> {
+
+    @Lock(PESSIMISTIC_WRITE)
+    List<Book> findWithLockByIdIn(Collection<Long> ids);
+
 }
@@ -1,9 +1,17 @@
 package zin.rashidi.boot.data.de.book;
 
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * @author Rashidi Zin
@@ -12,9 +20,11 @@ import org.springframework.web.bind.annotation.RestController;
 class BookResource {
 
     private final BookRepository repository;
+    private final ApplicationEventPublisher publisher;
 
-    BookResource(BookRepository repository) {
+    BookResource(BookRepository repository, ApplicationEventPublisher publisher) {
         this.repository = repository;
+        this.publisher = publisher;
     }
 
     @Transactional
@@ -23,4 +33,23 @@ class BookResource {
         repository.findById(id).map(Book::purchase).ifPresent(repository::delete);
     }
 
+    /**
+     * Purchases every book in {@code ids} with one query to find them and one statement to delete them, and publishes a
+     * single {@link BooksPurchaseEvent} for all of them. The books are locked until the purchase is committed, so a cart that
+     * shares a book with it waits and then finds the book gone. A cart with any book that is gone is rejected as a whole.
+     */
+    @Transactional
+    @DeleteMapping("/books/purchase")
+    public void purchase(@RequestParam List<Long> ids) {
+        var requested = Set.copyOf(ids);
+        var books = repository.findWithLockByIdIn(requested);
+
+        if (books.size() != requested.size()) {
+            throw new ResponseStatusException(CONFLICT, "%d of %d books are no longer available".formatted(requested.size() - books.size(), requested.size()));
+        }
+
+        repository.deleteAllInBatch(books);
+        publisher.publishEvent(BooksPurchaseEvent.of(books));
+    }
+
 }
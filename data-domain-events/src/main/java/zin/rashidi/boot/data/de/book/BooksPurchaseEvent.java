@@ -0,0 +1,33 @@
+package zin.rashidi.boot.data.de.book;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingInt;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published once for every purchase of several books, with the number of copies purchased per ISBN.
+ *
+ * @author Rashidi Zin
+ */
+public class BooksPurchaseEvent extends ApplicationEvent {
+
+    public BooksPurchaseEvent(Map<Long, Integer> quantities) {
+        super(Map.copyOf(quantities));
+    }
+
+    public static BooksPurchaseEvent of(Collection<Book> books) {
+        return new BooksPurchaseEvent(books.stream().collect(groupingBy(Book::getIsbn, LinkedHashMap::new, summingInt(_ -> 1))));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Integer> getSource() {
+        return (Map<Long, Integer>) super.getSource();
+    }
+
+}
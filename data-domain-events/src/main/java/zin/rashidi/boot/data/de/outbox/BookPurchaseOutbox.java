@@ -0,0 +1,46 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import static org.springframework.transaction.event.TransactionPhase.BEFORE_COMMIT;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import zin.rashidi.boot.data.de.book.BookPurchaseEvent;
+import zin.rashidi.boot.data.de.book.BooksPurchaseEvent;
+
+/**
+ * Writes every {@link BookPurchaseEvent} to the outbox in the transaction of its purchase, and wakes up
+ * {@link OutboxDispatcher} once that transaction is committed. A {@link BooksPurchaseEvent} is written as one event per
+ * ISBN.
+ *
+ * @author Rashidi Zin
+ */
+@Component
+class BookPurchaseOutbox {
+
+    private final OutboxRepository repository;
+    private final OutboxDispatcher dispatcher;
+
+    BookPurchaseOutbox(OutboxRepository repository, OutboxDispatcher dispatcher) {
+        this.repository = repository;
+        this.dispatcher = dispatcher;
+    }
+
+    @TransactionalEventListener(phase = BEFORE_COMMIT)
+    public void append(BookPurchaseEvent event) {
+        repository.save(new OutboxEvent(event));
+    }
+
+    @TransactionalEventListener(phase = BEFORE_COMMIT)
+    public void append(BooksPurchaseEvent event) {
+        repository.saveAll(event.getSource().entrySet().stream()
+                .map(quantity -> new OutboxEvent(quantity.getKey(), quantity.getValue()))
+                .toList());
+    }
+
+    @TransactionalEventListener(classes = { BookPurchaseEvent.class, BooksPurchaseEvent.class })
+    public void appended() {
+        dispatcher.signal();
+    }
+
+}
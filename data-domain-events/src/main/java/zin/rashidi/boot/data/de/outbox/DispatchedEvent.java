@@ -0,0 +1,22 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+
+/**
+ * An event delivered from the outbox by {@link OutboxDispatcher}. Listeners declare the event they expect, such as
+ * {@code DispatchedEvent<BookPurchaseEvent>}, and run in the transaction that removes it from the outbox, unless one of them
+ * {@linkplain Outbox#keep(DispatchedEvent) keeps} it.
+ *
+ * @param id the id of the event in the outbox
+ *
+ * @author Rashidi Zin
+ */
+public record DispatchedEvent<T>(T event, Long id) implements ResolvableTypeProvider {
+
+    @Override
+    public ResolvableType getResolvableType() {
+        return ResolvableType.forClassWithGenerics(getClass(), ResolvableType.forInstance(event));
+    }
+
+}
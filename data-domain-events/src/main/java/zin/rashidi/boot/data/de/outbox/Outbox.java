@@ -0,0 +1,36 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import java.util.Collection;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets a listener of {@link DispatchedEvent} apply events later, in a transaction of its own, without losing them. A kept
+ * event stays in the outbox but is not delivered again, unless the application starts before the listener removed it.
+ *
+ * @author Rashidi Zin
+ */
+@Component
+public class Outbox {
+
+    private final OutboxRepository repository;
+
+    Outbox(OutboxRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Keeps {@code dispatched} in the outbox. Called by its listener, in the transaction that delivers it.
+     */
+    public void keep(DispatchedEvent<?> dispatched) {
+        repository.keep(dispatched.id());
+    }
+
+    /**
+     * Removes the kept events of {@code ids} in the current transaction.
+     */
+    public void remove(Collection<Long> ids) {
+        repository.deleteAllByIdInBatch(ids);
+    }
+
+}
@@ -0,0 +1,160 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Delivers outbox events to listeners as {@link DispatchedEvent}, away from the requests that committed them. Events of the
+ * same ISBN are delivered one at a time in the order they were committed, on a virtual thread. Up to {@code concurrency}
+ * ISBNs are delivered at the same time, each holding a connection, so it is kept below the size of the connection pool.
+ * <p>
+ * An event is removed from the outbox in the same transaction that its listeners run in, so their changes and its removal
+ * are committed together. A listener that applies events later {@linkplain Outbox#keep(DispatchedEvent) keeps} its event
+ * instead, which is delivered again only if the application restarts before the listener removed it. When a listener
+ * fails, the event stays in the outbox and is retried after an exponential {@code retry-backoff}, and the events that
+ * follow it for the same ISBN wait for it.
+ * <p>
+ * The outbox is polled every {@code interval}, and straight away after a purchase is committed. Only one instance of the
+ * application is expected to dispatch.
+ *
+ * @author Rashidi Zin
+ */
+@Component
+class OutboxDispatcher implements SmartLifecycle {
+
+    private static final Log log = LogFactory.getLog(OutboxDispatcher.class);
+
+    private final Semaphore signals = new Semaphore(0);
+
+    private final OutboxRepository repository;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transaction;
+    private final Duration interval;
+    private final Duration retryBackoff;
+    private final int batchSize;
+    private final int concurrency;
+
+    private volatile Thread dispatcher;
+
+    OutboxDispatcher(OutboxRepository repository, ApplicationEventPublisher publisher, PlatformTransactionManager transactionManager,
+                     @Value("${books.outbox.interval:1s}") Duration interval,
+                     @Value("${books.outbox.retry-backoff:1s}") Duration retryBackoff,
+                     @Value("${books.outbox.batch-size:500}") int batchSize,
+                     @Value("${books.outbox.concurrency:4}") int concurrency) {
+        this.repository = repository;
+        this.publisher = publisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+        this.retryBackoff = retryBackoff;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public void start() {
+        int released = transaction.execute(_ -> repository.release());
+
+        if (released > 0) {
+            log.info("Delivering %d outbox events again that were kept but not removed".formatted(released));
+        }
+
+        dispatcher = Thread.ofVirtual().name("outbox-dispatcher").start(this::poll);
+    }
+
+    @Override
+    public void stop() {
+        var running = dispatcher;
+
+        dispatcher = null;
+
+        if (running != null) {
+            signal();
+
+            try {
+                running.join(Duration.ofSeconds(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return dispatcher != null;
+    }
+
+    void signal() {
+        signals.release();
+    }
+
+    private void poll() {
+        while (dispatcher == Thread.currentThread()) {
+            try {
+                signals.tryAcquire(interval.toNanos(), TimeUnit.NANOSECONDS);
+                signals.drainPermits();
+
+                while (dispatch() == batchSize && dispatcher == Thread.currentThread()) {
+                    // Every event of a full batch was delivered, so there may be more waiting
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Unable to read the outbox, retrying in %s".formatted(interval), e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of events delivered
+     */
+    private int dispatch() {
+        var events = repository.findDue(Instant.now(), Limit.of(batchSize));
+        var delivered = new AtomicInteger();
+
+        try (var executor = Executors.newFixedThreadPool(concurrency, Thread.ofVirtual().name("outbox-delivery-", 0).factory())) {
+            events.stream()
+                    .collect(groupingBy(OutboxEvent::getIsbn, LinkedHashMap::new, toList()))
+                    .values()
+                    .forEach(isbn -> executor.submit(() -> deliver(isbn, delivered)));
+        }
+
+        return delivered.get();
+    }
+
+    private void deliver(List<OutboxEvent> events, AtomicInteger delivered) {
+        for (var event : events) {
+            try {
+                transaction.executeWithoutResult(_ -> {
+                    publisher.publishEvent(new DispatchedEvent<>(event.toEvent(), event.getId()));
+                    repository.deleteUnlessKept(event.getId());
+                });
+
+                delivered.incrementAndGet();
+            } catch (RuntimeException e) {
+                log.warn("Unable to deliver outbox event %d after %d attempts".formatted(event.getId(), event.getAttempts() + 1), e);
+                repository.save(event.failed(retryBackoff));
+                return;
+            }
+        }
+    }
+
+}
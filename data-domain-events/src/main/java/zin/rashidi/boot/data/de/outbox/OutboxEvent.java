@@ -0,0 +1,91 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookPurchaseEvent;
+import zin.rashidi.boot.data.de.book.BooksPurchaseEvent;
+
+/**
+ * A purchase that was committed together with this event and is yet to be delivered. It is delivered as a
+ * {@link BookPurchaseEvent} when it stands for a single book and as a {@link BooksPurchaseEvent} of one ISBN otherwise.
+ *
+ * @author Rashidi Zin
+ */
+@Entity
+@Table(indexes = @Index(columnList = "isbn"))
+class OutboxEvent {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    private Long bookId;
+
+    private Long isbn;
+
+    private int quantity;
+
+    private int attempts;
+
+    private Instant availableAt;
+
+    private boolean kept;
+
+    protected OutboxEvent() {
+    }
+
+    OutboxEvent(BookPurchaseEvent event) {
+        this(event.getSource().getIsbn(), 1);
+        this.bookId = event.getSource().getId();
+    }
+
+    OutboxEvent(Long isbn, int quantity) {
+        this.isbn = isbn;
+        this.quantity = quantity;
+        this.availableAt = Instant.now();
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    Long getIsbn() {
+        return isbn;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Postpones the next attempt by {@code backoff}, doubled for every attempt that failed before, up to 64 times.
+     */
+    OutboxEvent failed(Duration backoff) {
+        availableAt = Instant.now().plus(backoff.multipliedBy(1L << Math.min(attempts, 6)));
+        attempts++;
+        return this;
+    }
+
+    Object toEvent() {
+        if (bookId == null) {
+            return new BooksPurchaseEvent(Map.of(isbn, quantity));
+        }
+
+        var book = new Book();
+
+        book.setId(bookId);
+        book.setIsbn(isbn);
+
+        return new BookPurchaseEvent(book);
+    }
+
+}
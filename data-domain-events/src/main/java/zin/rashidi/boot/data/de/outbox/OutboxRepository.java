@@ -0,0 +1,46 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * @author Rashidi Zin
+ */
+interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Finds the events that are due, leaving out every event of an ISBN from the first one that is still backing off, so
+     * that the events of an ISBN are delivered in order.
+     */
+    @Query("""
+            SELECT e FROM OutboxEvent e
+            WHERE e.kept = false
+            AND NOT EXISTS (
+                SELECT 1 FROM OutboxEvent b
+                WHERE b.isbn = e.isbn AND b.kept = false AND b.availableAt > :now AND b.id <= e.id
+            )
+            ORDER BY e.id
+            """)
+    List<OutboxEvent> findDue(Instant now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent SET kept = true WHERE id = :id")
+    void keep(Long id);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent WHERE id = :id AND kept = false")
+    void deleteUnlessKept(Long id);
+
+    /**
+     * Makes the events that were kept but never removed, because the application stopped before it could, deliverable again.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent SET kept = false WHERE kept = true")
+    int release();
+
+}
@@ -0,0 +1,107 @@
+package zin.rashidi.boot.data.de.availability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import zin.rashidi.boot.data.de.TestDataDomainEventsApplication;
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookRepository;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@SpringBootTest(
+        classes = TestDataDomainEventsApplication.class,
+        properties = "spring.jpa.hibernate.ddl-auto=create",
+        webEnvironment = RANDOM_PORT
+)
+class BookAvailabilityCacheTests {
+
+    @Autowired
+    private BookAvailabilityRepository availabilities;
+
+    @Autowired
+    private BookRepository books;
+
+    @Autowired
+    private BookAvailabilityCache cache;
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Test
+    @DisplayName("Given total book availability is 100 When it is read and then changed in the database Then the cached total of 100 is returned")
+    void servedFromMemory() {
+        long isbn = 9780062316097L;
+        var availability = stock(isbn, 100, 0).availability();
+
+        assertThat(client.getForObject("/books/availability/{isbn}", BookStock.class, isbn)).isEqualTo(new BookStock(availability.getId(), 100));
+
+        availability.setTotal(1);
+        availabilities.save(availability);
+
+        assertThat(client.getForObject("/books/availability/{isbn}", BookStock.class, isbn)).extracting(BookStock::total).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Given total book availability is 100 When 80 copies are purchased while availability is read concurrently Then the cached total should be 20 like the database")
+    void concurrentPurchases() {
+        long isbn = 9780385490818L;
+        var stocked = stock(isbn, 100, 80);
+
+        try (var executor = Executors.newFixedThreadPool(32)) {
+            stocked.copies().forEach(book -> {
+                executor.submit(() -> client.delete("/books/{id}/purchase", book.getId()));
+                executor.submit(() -> cache.find(isbn));
+            });
+        }
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(availabilities.findByIsbn(isbn)).get().extracting("total").isEqualTo(20);
+            assertThat(cache.find(isbn)).get().extracting(BookStock::total).isEqualTo(20);
+        });
+    }
+
+    @Test
+    @DisplayName("Given an unknown ISBN When its availability is read Then nothing is cached")
+    void unknown() {
+        assertThat(cache.find(9780000000002L)).isEmpty();
+    }
+
+    private Stocked stock(long isbn, int total, int copies) {
+        var availability = new BookAvailability();
+
+        availability.setIsbn(isbn);
+        availability.setTotal(total);
+
+        return new Stocked(availabilities.save(availability), books.saveAll(IntStream.range(0, copies).mapToObj(_ -> book(isbn)).toList()));
+    }
+
+    private static Book book(long isbn) {
+        var book = new Book();
+
+        book.setTitle("Book " + isbn);
+        book.setAuthor("Author");
+        book.setIsbn(isbn);
+
+        return book;
+    }
+
+    private record Stocked(BookAvailability availability, List<Book> copies) {
+    }
+
+}
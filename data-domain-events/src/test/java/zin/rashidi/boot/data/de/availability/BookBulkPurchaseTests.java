@@ -0,0 +1,118 @@
+package zin.rashidi.boot.data.de.availability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+
+import zin.rashidi.boot.data.de.TestDataDomainEventsApplication;
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookRepository;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@Import(SoldOutEvents.class)
+@SpringBootTest(
+        classes = TestDataDomainEventsApplication.class,
+        properties = "spring.jpa.hibernate.ddl-auto=create",
+        webEnvironment = RANDOM_PORT
+)
+class BookBulkPurchaseTests {
+
+    private static final long DUNE = 9780441172719L;
+    private static final long EMMA = 9780141439587L;
+    private static final long ULYSSES = 9780679722762L;
+    private static final long HAMLET = 9780743477123L;
+
+    @Autowired
+    private BookAvailabilityRepository availabilities;
+
+    @Autowired
+    private BookRepository books;
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private SoldOutEvents soldOut;
+
+    @Test
+    @DisplayName("Given a cart of 30 copies of a book with 100 copies and 20 copies of a book with 10 copies When the cart is purchased Then totals should be 70 and 0, the second book is reported as sold out once and every book in the cart is removed")
+    void purchase() {
+        var cart = new ArrayList<Book>();
+
+        cart.addAll(stock(DUNE, 100, 30));
+        cart.addAll(stock(EMMA, 10, 20));
+
+        client.delete("/books/purchase?ids={ids}", String.join(",", cart.stream().map(book -> book.getId().toString()).toList()));
+
+        assertThat(books.findAllById(cart.stream().map(Book::getId).toList())).isEmpty();
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(availabilities.findByIsbn(DUNE)).get().extracting("total").isEqualTo(70);
+            assertThat(availabilities.findByIsbn(EMMA)).get().extracting("total").isEqualTo(0);
+            assertThat(soldOut.count(EMMA)).isEqualTo(1);
+        });
+    }
+
+    @Test
+    @DisplayName("Given 8 carts that contain the same copy of a book When they are purchased concurrently Then only one cart is purchased and total book availability is reduced once")
+    void purchaseConcurrently() {
+        var copy = stock(ULYSSES, 10, 1).getFirst();
+        var others = stock(HAMLET, 10, 8);
+        var statuses = new ConcurrentLinkedQueue<HttpStatusCode>();
+
+        try (var buyers = Executors.newFixedThreadPool(8)) {
+            others.forEach(other -> buyers.submit(() -> statuses.add(client.exchange("/books/purchase?ids={ids}", HttpMethod.DELETE, null, Void.class,
+                    "%d,%d".formatted(copy.getId(), other.getId())).getStatusCode())));
+        }
+
+        assertThat(statuses).filteredOn(HttpStatusCode::is2xxSuccessful).hasSize(1);
+        assertThat(statuses).filteredOn(status -> status.value() == 409).hasSize(7);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(availabilities.findByIsbn(ULYSSES)).get().extracting("total").isEqualTo(9);
+            assertThat(availabilities.findByIsbn(HAMLET)).get().extracting("total").isEqualTo(9);
+        });
+    }
+
+    private List<Book> stock(long isbn, int total, int copies) {
+        var availability = new BookAvailability();
+
+        availability.setIsbn(isbn);
+        availability.setTotal(total);
+
+        availabilities.save(availability);
+
+        return books.saveAll(IntStream.range(0, copies).mapToObj(_ -> book(isbn)).toList());
+    }
+
+    private static Book book(long isbn) {
+        var book = new Book();
+
+        book.setTitle("Book " + isbn);
+        book.setAuthor("Author");
+        book.setIsbn(isbn);
+
+        return book;
+    }
+
+}
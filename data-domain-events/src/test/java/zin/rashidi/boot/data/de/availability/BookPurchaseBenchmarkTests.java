@@ -0,0 +1,103 @@
+package zin.rashidi.boot.data.de.availability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import zin.rashidi.boot.data.de.TestDataDomainEventsApplication;
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookPurchaseEvent;
+
+/**
+ * Commits {@code benchmark.purchases} purchases of one book from 32 threads and reports purchases per second, once with a
+ * transaction per purchase and once with {@link BookPurchaseWriteBehind}. Excluded from {@code test}, run it with
+ * {@code ./gradlew benchmark -Pbenchmark.purchases=100000}.
+ *
+ * @author Rashidi Zin
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = TestDataDomainEventsApplication.class, properties = "spring.jpa.hibernate.ddl-auto=create")
+class BookPurchaseBenchmarkTests {
+
+    private static final int PURCHASES = Integer.getInteger("benchmark.purchases", 20_000);
+
+    @Nested
+    class PerPurchase extends Purchases {
+    }
+
+    @Nested
+    @TestPropertySource(properties = "books.availability.write-behind.enabled=true")
+    class WriteBehind extends Purchases {
+    }
+
+    abstract class Purchases {
+
+        @Autowired
+        private BookAvailabilityRepository availabilities;
+
+        @Autowired
+        private ApplicationEventPublisher publisher;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        @Test
+        @DisplayName("Given a book with as many copies as purchases When every purchase is committed concurrently Then total book availability becomes 0 and purchases per second are reported")
+        void purchase(TestReporter reporter) {
+            long isbn = getClass().getSimpleName().hashCode();
+            var transaction = new TransactionTemplate(transactionManager);
+            var book = book(isbn);
+
+            availabilities.save(availability(isbn));
+
+            long startedAt = System.nanoTime();
+
+            try (var buyers = Executors.newFixedThreadPool(32)) {
+                for (int i = 0; i < PURCHASES; i++) {
+                    buyers.submit(() -> transaction.executeWithoutResult(_ -> publisher.publishEvent(new BookPurchaseEvent(book))));
+                }
+            }
+
+            await().atMost(Duration.ofMinutes(5)).pollInterval(Duration.ofMillis(10))
+                    .untilAsserted(() -> assertThat(availabilities.findByIsbn(isbn)).get().extracting("total").isEqualTo(0));
+
+            var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+            reporter.publishEntry("%s: %d purchases in %d ms, %.0f purchases/s".formatted(getClass().getSimpleName(), PURCHASES,
+                    elapsed.toMillis(), PURCHASES / (elapsed.toNanos() / 1_000_000_000.0)));
+        }
+
+        private static Book book(long isbn) {
+            var book = new Book();
+
+            book.setIsbn(isbn);
+
+            return book;
+        }
+
+        private static BookAvailability availability(long isbn) {
+            var availability = new BookAvailability();
+
+            availability.setIsbn(isbn);
+            availability.setTotal(PURCHASES);
+
+            return availability;
+        }
+
+    }
+
+}
@@ -0,0 +1,131 @@
+package zin.rashidi.boot.data.de.availability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import zin.rashidi.boot.data.de.TestDataDomainEventsApplication;
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookRepository;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@Import(SoldOutEvents.class)
+@SpringBootTest(
+        classes = TestDataDomainEventsApplication.class,
+        properties = "spring.jpa.hibernate.ddl-auto=create",
+        webEnvironment = RANDOM_PORT
+)
+class BookPurchaseContentionTests {
+
+    private static final long ISBN = 9780393635522L;
+    private static final long OTHER_ISBN = 9780593135204L;
+    private static final int AVAILABLE = 100;
+    private static final int PURCHASES = 150;
+
+    @Autowired
+    private BookAvailabilityRepository availabilities;
+
+    @Autowired
+    private BookRepository books;
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private SoldOutEvents soldOut;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Test
+    @DisplayName("Given total book availability is 100 When 150 copies are purchased concurrently Then total book availability should be 0 and 50 purchases are reported as sold out")
+    void purchaseConcurrently(TestReporter reporter) {
+        var copies = books.saveAll(LongStream.rangeClosed(1, PURCHASES).mapToObj(_ -> book()).toList());
+
+        availabilities.save(availability(ISBN));
+
+        long startedAt = System.nanoTime();
+
+        try (var buyers = Executors.newFixedThreadPool(32)) {
+            copies.forEach(book -> buyers.submit(() -> client.delete("/books/{id}/purchase", book.getId())));
+        }
+
+        var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+        reporter.publishEntry("%d concurrent purchases of one book in %d ms, %.0f purchases/s".formatted(
+                PURCHASES, elapsed.toMillis(), PURCHASES / (elapsed.toNanos() / 1_000_000_000.0)));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(availabilities.findByIsbn(ISBN)).get()
+                    .extracting("total")
+                    .isEqualTo(0);
+
+            assertThat(soldOut.count(ISBN)).isEqualTo(PURCHASES - AVAILABLE);
+        });
+    }
+
+    @Test
+    @DisplayName("Given total book availability is 100 When reduceTotal is called 150 times from 32 threads at once Then 100 calls take a copy and total book availability should be 0")
+    void reduceTotalConcurrently() {
+        availabilities.save(availability(OTHER_ISBN));
+
+        var taken = new AtomicInteger();
+        var start = new CountDownLatch(1);
+
+        try (var buyers = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < PURCHASES; i++) {
+                buyers.submit(() -> {
+                    start.await();
+                    taken.addAndGet(transaction.execute(_ -> availabilities.reduceTotal(OTHER_ISBN)));
+                    return null;
+                });
+            }
+
+            start.countDown();
+        }
+
+        assertThat(taken).hasValue(AVAILABLE);
+        assertThat(availabilities.findByIsbn(OTHER_ISBN)).get()
+                .extracting("total")
+                .isEqualTo(0);
+    }
+
+    private Book book() {
+        var book = new Book();
+
+        book.setTitle("The Overstory");
+        book.setAuthor("Richard Powers");
+        book.setIsbn(ISBN);
+
+        return book;
+    }
+
+    private BookAvailability availability(long isbn) {
+        var availability = new BookAvailability();
+
+        availability.setIsbn(isbn);
+        availability.setTotal(AVAILABLE);
+
+        return availability;
+    }
+
+}
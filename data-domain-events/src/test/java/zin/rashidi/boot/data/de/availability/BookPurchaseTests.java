@@ -1,8 +1,11 @@
 package zin.rashidi.boot.data.de.availability;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -49,11 +52,9 @@ class BookPurchaseTests {
     void purchase() {
         client.delete("/books/{id}/purchase", book.getId());
 
-        var availability = availabilities.findByIsbn(book.getIsbn());
-
-        assertThat(availability).get()
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(availabilities.findByIsbn(book.getIsbn())).get()
                 .extracting("total")
-                .isEqualTo(99);
+                .isEqualTo(99));
     }
 
     private Book book() {
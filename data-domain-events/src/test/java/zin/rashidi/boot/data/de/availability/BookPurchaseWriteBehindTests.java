@@ -0,0 +1,132 @@
+package zin.rashidi.boot.data.de.availability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import zin.rashidi.boot.data.de.TestDataDomainEventsApplication;
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookRepository;
+
+/**
+ * @author Rashidi Zin
+ */
+@AutoConfigureTestRestTemplate
+@RecordApplicationEvents
+@SpringBootTest(
+        classes = TestDataDomainEventsApplication.class,
+        properties = {
+                "spring.jpa.hibernate.ddl-auto=create",
+                "books.availability.write-behind.enabled=true",
+                "books.availability.write-behind.window=1h",
+                "books.availability.write-behind.threshold=100"
+        },
+        webEnvironment = RANDOM_PORT
+)
+class BookPurchaseWriteBehindTests {
+
+    @Autowired
+    private BookAvailabilityRepository availabilities;
+
+    @Autowired
+    private BookRepository books;
+
+    @Autowired
+    private TestRestTemplate client;
+
+    @Autowired
+    private BookPurchaseWriteBehind writeBehind;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("Given the threshold is 100 purchases When 100 copies are purchased concurrently Then total book availability becomes 0 before the window ends")
+    void threshold() {
+        long isbn = 9780143127741L;
+        var copies = stock(isbn, 100, 100);
+
+        purchase(copies);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(availabilities.findByIsbn(isbn)).get()
+                .extracting("total")
+                .isEqualTo(0));
+    }
+
+    @Test
+    @DisplayName("Given 30 purchases of a book with 20 copies are pending When the application stops Then total book availability should be 0, the book is reported as sold out once and its purchases leave the outbox")
+    void flushOnStop() {
+        long isbn = 9780307387899L;
+        var copies = stock(isbn, 20, 30);
+
+        purchase(copies);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> writeBehind.pending(isbn) == 30);
+
+        assertThat(availabilities.findByIsbn(isbn)).get()
+                .extracting("total")
+                .isEqualTo(20);
+
+        assertThat(outbox(isbn)).isEqualTo(30);
+
+        writeBehind.stop();
+        writeBehind.start();
+
+        assertThat(availabilities.findByIsbn(isbn)).get()
+                .extracting("total")
+                .isEqualTo(0);
+
+        assertThat(events.stream(BookSoldOutEvent.class).filter(event -> event.getSource() == isbn)).hasSize(1);
+        assertThat(outbox(isbn)).isZero();
+    }
+
+    private List<Book> stock(long isbn, int total, int copies) {
+        var availability = new BookAvailability();
+
+        availability.setIsbn(isbn);
+        availability.setTotal(total);
+
+        availabilities.save(availability);
+
+        return books.saveAll(IntStream.range(0, copies).mapToObj(_ -> book(isbn)).toList());
+    }
+
+    private void purchase(List<Book> copies) {
+        try (var buyers = Executors.newFixedThreadPool(16)) {
+            copies.forEach(book -> buyers.submit(() -> client.delete("/books/{id}/purchase", book.getId())));
+        }
+    }
+
+    private long outbox(long isbn) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE isbn = ?", Long.class, isbn);
+    }
+
+    private static Book book(long isbn) {
+        var book = new Book();
+
+        book.setTitle("Book " + isbn);
+        book.setAuthor("Author");
+        book.setIsbn(isbn);
+
+        return book;
+    }
+
+}
@@ -0,0 +1,27 @@
+package zin.rashidi.boot.data.de.availability;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Records the ISBN of every {@link BookSoldOutEvent} published in the application context that imports it. Purchases are
+ * taken on the threads of the outbox dispatcher, where {@code ApplicationEvents} of the test thread does not see them.
+ *
+ * @author Rashidi Zin
+ */
+class SoldOutEvents implements ApplicationListener<BookSoldOutEvent> {
+
+    private final Queue<Long> isbns = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onApplicationEvent(BookSoldOutEvent event) {
+        isbns.add(event.getSource());
+    }
+
+    long count(long isbn) {
+        return isbns.stream().filter(soldOut -> soldOut == isbn).count();
+    }
+
+}
@@ -0,0 +1,132 @@
+package zin.rashidi.boot.data.de.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import zin.rashidi.boot.data.de.TestDataDomainEventsApplication;
+import zin.rashidi.boot.data.de.book.Book;
+import zin.rashidi.boot.data.de.book.BookPurchaseEvent;
+
+/**
+ * @author Rashidi Zin
+ */
+@SpringBootTest(
+        classes = TestDataDomainEventsApplication.class,
+        properties = {
+                "spring.jpa.hibernate.ddl-auto=create",
+                "books.outbox.interval=100ms",
+                "books.outbox.retry-backoff=500ms",
+                "books.outbox.batch-size=2"
+        }
+)
+@Import(OutboxDispatcherTests.PurchaseRecorder.class)
+class OutboxDispatcherTests {
+
+    private static final long ISBN = 9780374533557L;
+    private static final long FAILING = 9780062316097L;
+    private static final long OTHER = 9780525559474L;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @Autowired
+    private OutboxRepository outbox;
+
+    @Autowired
+    private PurchaseRecorder recorder;
+
+    @Test
+    @DisplayName("Given the first delivery of a purchase fails When 3 purchases of the same book are committed Then all 3 are delivered in the order they were committed")
+    void retryInOrder() {
+        transaction.executeWithoutResult(_ -> {
+            for (long id = 1; id <= 3; id++) {
+                publisher.publishEvent(new BookPurchaseEvent(book(id, ISBN)));
+            }
+        });
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(recorder.delivered(ISBN)).containsExactly(1L, 2L, 3L);
+            assertThat(outbox.count()).isZero();
+        });
+
+        assertThat(recorder.failed).isTrue();
+    }
+
+    @Test
+    @DisplayName("Given a full batch of purchases of a book whose delivery keeps failing When a purchase of another book is committed Then it is delivered while the others back off")
+    void deliverAroundBackoff() {
+        recorder.failing.add(FAILING);
+
+        transaction.executeWithoutResult(_ -> {
+            publisher.publishEvent(new BookPurchaseEvent(book(11, FAILING)));
+            publisher.publishEvent(new BookPurchaseEvent(book(12, FAILING)));
+            publisher.publishEvent(new BookPurchaseEvent(book(13, OTHER)));
+        });
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(recorder.delivered(OTHER)).containsExactly(13L));
+
+        assertThat(recorder.delivered(FAILING)).isEmpty();
+
+        recorder.failing.remove(FAILING);
+
+        await().atMost(Duration.ofSeconds(15)).untilAsserted(() -> {
+            assertThat(recorder.delivered(FAILING)).containsExactly(11L, 12L);
+            assertThat(outbox.count()).isZero();
+        });
+    }
+
+    private static Book book(long id, long isbn) {
+        var book = new Book();
+
+        book.setId(id);
+        book.setIsbn(isbn);
+
+        return book;
+    }
+
+    @TestConfiguration
+    static class PurchaseRecorder {
+
+        private final Map<Long, List<Long>> delivered = new ConcurrentHashMap<>();
+        private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean failed = new AtomicBoolean();
+
+        @EventListener
+        void record(DispatchedEvent<BookPurchaseEvent> dispatched) {
+            var book = dispatched.event().getSource();
+
+            if (failing.contains(book.getIsbn()) || (book.getIsbn() == ISBN && failed.compareAndSet(false, true))) {
+                throw new IllegalStateException("Unable to deliver purchase of book %d".formatted(book.getId()));
+            }
+
+            delivered(book.getIsbn()).add(book.getId());
+        }
+
+        List<Long> delivered(long isbn) {
+            return delivered.computeIfAbsent(isbn, _ -> new CopyOnWriteArrayList<>());
+        }
+
+    }
+
+}
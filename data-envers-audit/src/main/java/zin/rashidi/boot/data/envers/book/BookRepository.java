@@ -6,5 +6,5 @@ import org.springframework.data.repository.history.RevisionRepository;
 /**
  * @author Rashidi Zin
  */
-public interface BookRepository extends JpaRepository<Book, Long>, RevisionRepository<Book, Long, Integer> {
+public interface BookRepository extends JpaRepository<Book, Long>, RevisionRepository<Book, Long, Integer>, BookRevisionRepository {
 }
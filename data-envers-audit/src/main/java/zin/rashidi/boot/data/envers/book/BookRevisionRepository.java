@@ -0,0 +1,32 @@
+package zin.rashidi.boot.data.envers.book;
+
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Window;
+import org.springframework.data.history.Revision;
+
+/**
+ * Reads the revisions of a {@link Book} by revision number rather than by offset, so that reading further into a long audit
+ * trail does not get slower.
+ *
+ * @author Rashidi Zin
+ */
+public interface BookRevisionRepository {
+
+    /**
+     * Revisions of the book {@code id} after the revision number held by {@code position}, in ascending order.
+     */
+    Window<Revision<Integer, Book>> scrollRevisions(Long id, KeysetScrollPosition position, Limit limit);
+
+    /**
+     * Every revision of the book {@code id} in ascending order, read as the stream is consumed through one
+     * {@link #scrollRevisions} query per page of {@code pageSize} revisions. It has to be called and consumed within a
+     * transaction, which every page joins.
+     *
+     * @throws org.springframework.transaction.IllegalTransactionStateException when there is no transaction in progress
+     */
+    Stream<Revision<Integer, Book>> streamRevisions(Long id, int pageSize);
+
+}
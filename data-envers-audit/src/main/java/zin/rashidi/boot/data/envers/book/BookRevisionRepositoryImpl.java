@@ -0,0 +1,99 @@
+package zin.rashidi.boot.data.envers.book;
+
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static org.springframework.transaction.annotation.Propagation.MANDATORY;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionNumber;
+import org.hibernate.envers.RevisionTimestamp;
+import org.hibernate.envers.query.AuditEntity;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.history.AnnotationRevisionMetadata;
+import org.springframework.data.history.Revision;
+import org.springframework.data.history.RevisionMetadata;
+import org.springframework.data.support.WindowIterator;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Queries the audit table by book id and revision number, which is its primary key. Revision entities are detached once
+ * they are read, so that streaming a long audit trail does not fill the persistence context.
+ *
+ * @author Rashidi Zin
+ */
+class BookRevisionRepositoryImpl implements BookRevisionRepository {
+
+    private static final String REVISION = "revision";
+
+    private final EntityManager entityManager;
+
+    BookRevisionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Window<Revision<Integer, Book>> scrollRevisions(Long id, KeysetScrollPosition position, Limit limit) {
+        Assert.isTrue(position.scrollsForward(), "Revisions can only be scrolled forward");
+        Assert.isTrue(limit.isLimited(), "Revisions can only be scrolled with a limit");
+
+        var query = AuditReaderFactory.get(entityManager).createQuery()
+                .forRevisionsOfEntity(Book.class, false, true)
+                .add(AuditEntity.id().eq(id))
+                .addOrder(AuditEntity.revisionNumber().asc())
+                .setMaxResults(limit.max() + 1);
+
+        if (position.getKeys().get(REVISION) instanceof Integer after) {
+            query.add(AuditEntity.revisionNumber().gt(after));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        var revisions = rows.stream().limit(limit.max()).map(this::revision).toList();
+
+        return Window.from(revisions,
+                index -> ScrollPosition.forward(Map.of(REVISION, revisions.get(index).getRequiredRevisionNumber())),
+                rows.size() > limit.max());
+    }
+
+    /**
+     * Pages are read by calling {@link #scrollRevisions} on this instance, outside of its transactional proxy, so they rely on
+     * the transaction that is required here.
+     */
+    @Override
+    @Transactional(propagation = MANDATORY, readOnly = true)
+    public Stream<Revision<Integer, Book>> streamRevisions(Long id, int pageSize) {
+        var revisions = WindowIterator.of(position -> scrollRevisions(id, (KeysetScrollPosition) position, Limit.of(pageSize)))
+                .startingAt(ScrollPosition.keyset());
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(revisions, ORDERED | NONNULL), false);
+    }
+
+    /**
+     * @param row the audited {@link Book}, its revision entity and its {@link org.hibernate.envers.RevisionType}
+     */
+    private Revision<Integer, Book> revision(Object[] row) {
+        var type = switch ((org.hibernate.envers.RevisionType) row[2]) {
+            case ADD -> RevisionMetadata.RevisionType.INSERT;
+            case MOD -> RevisionMetadata.RevisionType.UPDATE;
+            case DEL -> RevisionMetadata.RevisionType.DELETE;
+        };
+
+        entityManager.detach(row[1]);
+
+        return Revision.of(new AnnotationRevisionMetadata<>(row[1], RevisionNumber.class, RevisionTimestamp.class, type), (Book) row[0]);
+    }
+
+}
@@ -1,9 +1,11 @@
 package zin.rashidi.boot.data.envers;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.HamcrestCondition.matching;
 import static org.hamcrest.Matchers.greaterThan;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.DisplayName;
@@ -11,7 +13,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.history.Revision;
+import org.springframework.data.history.RevisionMetadata;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.mysql.MySQLContainer;
@@ -32,6 +40,9 @@ class BookAuditRevisionTests {
     @Autowired
     private BookRepository repository;
 
+    @Autowired
+    private TransactionTemplate transaction;
+
     @Test
     @DisplayName("When a book is created, then a revision information is available with revision number 1")
     void create() {
@@ -94,4 +105,73 @@ class BookAuditRevisionTests {
                 .containsOnly(createdBook.getId(), null, null);
     }
 
+    @Test
+    @DisplayName("When a book with 5 revisions is scrolled 2 revisions at a time, then the windows hold 2, 2 and 1 revisions in ascending order")
+    void scroll() {
+        var book = revised(5);
+
+        var first = repository.scrollRevisions(book.getId(), ScrollPosition.keyset(), Limit.of(2));
+        var second = repository.scrollRevisions(book.getId(), (KeysetScrollPosition) first.positionAt(1), Limit.of(2));
+        var third = repository.scrollRevisions(book.getId(), (KeysetScrollPosition) second.positionAt(1), Limit.of(2));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.hasNext()).isTrue();
+        assertThat(third.hasNext()).isFalse();
+
+        assertThat(List.of(first.size(), second.size(), third.size())).containsExactly(2, 2, 1);
+        assertThat(third.getContent()).first()
+                .extracting(revision -> revision.getEntity().getTitle())
+                .isEqualTo("Edition 5");
+        assertThat(first.getContent().getLast().getRequiredRevisionNumber()).isLessThan(second.getContent().getFirst().getRequiredRevisionNumber());
+    }
+
+    @Test
+    @DisplayName("When the revisions of a modified and then removed book are streamed, then every revision is returned in order")
+    void stream() {
+        var book = revised(4);
+
+        repository.delete(book);
+
+        var revisions = transaction.execute(_ -> {
+            try (var stream = repository.streamRevisions(book.getId(), 2)) {
+                return stream.map(revision -> revision.getMetadata().getRevisionType()).toList();
+            }
+        });
+
+        assertThat(revisions).containsExactly(
+                RevisionMetadata.RevisionType.INSERT,
+                RevisionMetadata.RevisionType.UPDATE,
+                RevisionMetadata.RevisionType.UPDATE,
+                RevisionMetadata.RevisionType.UPDATE,
+                RevisionMetadata.RevisionType.DELETE
+        );
+
+        assertThat(repository.findRevisions(book.getId())).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("When the revisions of a book are streamed outside of a transaction, then it is rejected before any revision is read")
+    void streamWithoutTransaction() {
+        var book = revised(2);
+
+        assertThatThrownBy(() -> repository.streamRevisions(book.getId(), 2))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    private Book revised(int editions) {
+        var book = new Book();
+
+        book.setTitle("Edition 1");
+        book.setAuthor("Rudyard Kipling");
+
+        var revised = repository.save(book);
+
+        for (int edition = 2; edition <= editions; edition++) {
+            revised.setTitle("Edition " + edition);
+            revised = repository.save(revised);
+        }
+
+        return revised;
+    }
+
 }